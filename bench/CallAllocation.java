@@ -0,0 +1,281 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated per function call in steady state, comparing functions implementing the primitive
+ * {@link IntNamedFunction} interface against functions written to the generic {@link NamedFunction} interface, on both
+ * the stack machine and compiled expressions. Results are deliberately kept out of the small {@link Integer} cache, and
+ * several function classes are called from the same sites so that the JIT cannot inline its way out of boxing.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+public class CallAllocation {
+
+    /**
+     * The depth of the balanced tree of calls evaluated.
+     */
+    private static final int DEPTH = 10;
+
+    /**
+     * The number of evaluations to warm up with before measuring.
+     */
+    private static final int WARMUP = 20000;
+
+    /**
+     * The number of evaluations measured.
+     */
+    private static final int EVALUATIONS = 20000;
+
+    /**
+     * The names of the functions called, one function class each.
+     */
+    private static final String[] NAMES = new String[] {"mixa", "mixb", "mixc"};
+
+    /**
+     * Represents a function written as transpiled functions are generated, mixing two ints into a large one.
+     */
+    private abstract static class MixFunction implements IntNamedFunction {
+
+        private String name;
+
+        /**
+         * Initialises a new instance of a mixing function.
+         *
+         * @param name  the function name
+         */
+        private MixFunction(String name) {
+            this.name = name;
+        }
+
+        private static int mix(int x, int y) {
+            return (x * 31 + y) | 0x40000000;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int applyAsInt(int[] args) {
+            return mix(args[0], args[1]);
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int apply2(int arg0, int arg1) {
+            return mix(arg0, arg1);
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int getArity() {
+            return 2;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public boolean isPure() {
+            return true;
+        }
+    }
+
+    /**
+     * Represents the first of several identical mixing function classes.
+     */
+    private static class MixA extends MixFunction {
+
+        private MixA() {
+            super(NAMES[0]);
+        }
+    }
+
+    /**
+     * Represents the second of several identical mixing function classes.
+     */
+    private static class MixB extends MixFunction {
+
+        private MixB() {
+            super(NAMES[1]);
+        }
+    }
+
+    /**
+     * Represents the third of several identical mixing function classes.
+     */
+    private static class MixC extends MixFunction {
+
+        private MixC() {
+            super(NAMES[2]);
+        }
+    }
+
+    /**
+     * Represents the same function written to the generic interface, boxing its result.
+     */
+    private abstract static class GenericMixFunction implements NamedFunction<int[], Integer> {
+
+        private String name;
+
+        /**
+         * Initialises a new instance of a generic mixing function.
+         *
+         * @param name  the function name
+         */
+        private GenericMixFunction(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public Integer apply(int[] args) {
+            return (args[0] * 31 + args[1]) | 0x40000000;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int getArity() {
+            return 2;
+        }
+    }
+
+    /**
+     * Represents the first of several identical generic mixing function classes.
+     */
+    private static class GenericMixA extends GenericMixFunction {
+
+        private GenericMixA() {
+            super(NAMES[0]);
+        }
+    }
+
+    /**
+     * Represents the second of several identical generic mixing function classes.
+     */
+    private static class GenericMixB extends GenericMixFunction {
+
+        private GenericMixB() {
+            super(NAMES[1]);
+        }
+    }
+
+    /**
+     * Represents the third of several identical generic mixing function classes.
+     */
+    private static class GenericMixC extends GenericMixFunction {
+
+        private GenericMixC() {
+            super(NAMES[2]);
+        }
+    }
+
+    /**
+     * Generates a balanced binary tree of calls, cycling through the functions.
+     *
+     * @param depth the depth of the tree
+     * @param seed  the argument at the leftmost leaf
+     * @return      the generated program
+     */
+    private static String tree(int depth, int seed) {
+        if (depth == 0) {
+            return Integer.toString(seed);
+        }
+        String name = NAMES[seed % NAMES.length];
+        return "(" + name + " " + tree(depth - 1, seed * 2) + " " + tree(depth - 1, seed * 2 + 1) + ")";
+    }
+
+    /**
+     * Represents a single way of evaluating a program.
+     */
+    private interface Run {
+
+        /**
+         * Evaluates the program once.
+         *
+         * @return                      the result
+         * @throws EvaluationException  if evaluation fails
+         */
+        int run() throws EvaluationException;
+    }
+
+    /**
+     * Measures the bytes allocated by the current thread per call made.
+     *
+     * @param run                   the way of evaluating the program
+     * @param calls                 the number of calls made per evaluation
+     * @return                      the bytes allocated per call
+     * @throws EvaluationException  if evaluation fails
+     */
+    private static double measure(Run run, int calls) throws EvaluationException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += run.run();
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < EVALUATIONS; i++) {
+            sink += run.run();
+        }
+        long after = threads.getThreadAllocatedBytes(thread);
+        if (sink == 42) {
+            System.out.println(); // Keep results live.
+        }
+        return (after - before) / (double) EVALUATIONS / calls;
+    }
+
+    /**
+     * The program main method.
+     *
+     * @param args          the command-line arguments passed
+     * @throws Exception    if the benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        String source = tree(DEPTH, 1);
+        Program program = Program.parse(new TokenStream(new CapriccioTokenizer().tokenize(source)));
+        int calls = (1 << DEPTH) - 1;
+
+        Evaluator primitive = new Evaluator();
+        Evaluator generic = new Evaluator();
+        Evaluator memoized = new Evaluator();
+        for (MixFunction function : new MixFunction[] {new MixA(), new MixB(), new MixC()}) {
+            primitive.addFunction(function);
+            memoized.addFunction(function);
+        }
+        for (GenericMixFunction function : new GenericMixFunction[] {new GenericMixA(), new GenericMixB(),
+                new GenericMixC()}) {
+            generic.addFunction(function);
+        }
+        memoized.setResultCache(new ResultCache(4 * calls));
+        if (primitive.evaluate(program) != generic.evaluate(program)) {
+            throw new AssertionError("Primitive and generic results differ.");
+        }
+
+        CompiledExpression primitiveCompiled = primitive.compile(program.toExpression());
+        CompiledExpression genericCompiled = generic.compile(program.toExpression());
+        System.out.println("Calls per evaluation: " + calls);
+        System.out.printf("%-28s %16s%n", "function", "bytes per call");
+        System.out.printf("%-28s %16.2f%n", "primitive, stack machine", measure(() -> primitive.evaluate(program), calls));
+        System.out.printf("%-28s %16.2f%n", "primitive, compiled", measure(primitiveCompiled::evaluate, calls));
+        System.out.printf("%-28s %16.2f%n", "primitive, memoized", measure(() -> memoized.evaluate(program), calls));
+        System.out.printf("%-28s %16.2f%n", "generic, stack machine", measure(() -> generic.evaluate(program), calls));
+        System.out.printf("%-28s %16.2f%n", "generic, compiled", measure(genericCompiled::evaluate, calls));
+    }
+}
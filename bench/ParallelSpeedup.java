@@ -0,0 +1,201 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares sequential evaluation against parallel fork-join evaluation on wide and deep trees of calls to an expensive
+ * synthetic function, checking that both give the same result.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+public class ParallelSpeedup {
+
+    /**
+     * The number of iterations the synthetic expensive function spins for on each call.
+     */
+    private static final int SPIN_ITERATIONS = 2000000;
+
+    /**
+     * The number of timed repetitions per measurement.
+     */
+    private static final int REPETITIONS = 5;
+
+    /**
+     * Represents an expensive, pure function of one argument.
+     */
+    private static class SpinFunction implements NamedFunction<int[], Integer> {
+
+        /**
+         * @inheritDoc
+         */
+        public Integer apply(int[] args) {
+            int x = args[0];
+            for (int i = 0; i < SPIN_ITERATIONS; i++) {
+                x ^= x << 13;
+                x ^= x >>> 17;
+                x ^= x << 5;
+            }
+            return x & 0xFFFF;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public String getName() {
+            return "spin";
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int getArity() {
+            return 1;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public boolean isPure() {
+            return true;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int getCost() {
+            return SPIN_ITERATIONS;
+        }
+    }
+
+    /**
+     * Represents a cheap, pure function that adds up its arguments, for any fixed arity.
+     */
+    private static class AddFunction implements NamedFunction<int[], Integer> {
+
+        private String name;
+
+        private int arity;
+
+        /**
+         * Initialises a new instance of an addition function.
+         *
+         * @param name  the function name
+         * @param arity the function arity
+         */
+        private AddFunction(String name, int arity) {
+            this.name = name;
+            this.arity = arity;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public Integer apply(int[] args) {
+            int sum = 0;
+            for (int arg : args) {
+                sum += arg;
+            }
+            return sum;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int getArity() {
+            return arity;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public boolean isPure() {
+            return true;
+        }
+    }
+
+    /**
+     * Generates a single call with the given number of expensive arguments.
+     *
+     * @param width the number of arguments
+     * @return      the generated program
+     */
+    private static String wide(int width) {
+        StringBuilder source = new StringBuilder("(wide");
+        for (int i = 0; i < width; i++) {
+            source.append(" (spin ").append(i + 1).append(')');
+        }
+        return source.append(')').toString();
+    }
+
+    /**
+     * Generates a balanced binary tree of additions with an expensive call at each leaf.
+     *
+     * @param depth the depth of the tree
+     * @param seed  the argument to the leftmost expensive call
+     * @return      the generated program
+     */
+    private static String deep(int depth, int seed) {
+        if (depth == 0) {
+            return "(spin " + seed + ")";
+        }
+        return "(add " + deep(depth - 1, seed * 2) + " " + deep(depth - 1, seed * 2 + 1) + ")";
+    }
+
+    /**
+     * Measures the best time taken to evaluate a program.
+     *
+     * @param evaluator             the evaluator to use
+     * @param program               the program to evaluate
+     * @param pool                  the pool to evaluate on, or null to evaluate sequentially
+     * @return                      the best time taken in milliseconds
+     * @throws EvaluationException  if evaluation fails
+     */
+    private static double measure(Evaluator evaluator, Program program, ForkJoinPool pool)
+            throws EvaluationException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < REPETITIONS; i++) {
+            long start = System.nanoTime();
+            if (pool == null) {
+                evaluator.evaluate(program);
+            } else {
+                evaluator.evaluate(program, pool);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    /**
+     * The program main method.
+     *
+     * @param args          the command-line arguments passed
+     * @throws Exception    if the benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        Evaluator evaluator = new Evaluator();
+        evaluator.addFunction(new SpinFunction());
+        evaluator.addFunction(new AddFunction("add", 2));
+        int width = 64;
+        evaluator.addFunction(new AddFunction("wide", width));
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.println("Parallelism: " + pool.getParallelism());
+        System.out.printf("%8s %16s %16s %10s%n", "tree", "sequential (ms)", "parallel (ms)", "speedup");
+        String[][] trees = new String[][] {{"wide", wide(width)}, {"deep", deep(6, 1)}};
+        for (String[] tree : trees) {
+            Program program = Program.parse(new TokenStream(new CapriccioTokenizer().tokenize(tree[1])));
+            if (evaluator.evaluate(program) != evaluator.evaluate(program, pool)) {
+                throw new AssertionError("Parallel and sequential results differ.");
+            }
+            double sequential = measure(evaluator, program, null);
+            double parallel = measure(evaluator, program, pool);
+            System.out.printf("%8s %16.1f %16.1f %9.1fx%n", tree[0], sequential, parallel, sequential / parallel);
+        }
+    }
+}
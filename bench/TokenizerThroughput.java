@@ -0,0 +1,122 @@
+import java.util.Random;
+
+/**
+ * Compares the throughput of the single-pass {@link CapriccioTokenizer} against the reference {@link RegexTokenizer}
+ * on generated programs of increasing size, checking that both produce identical tokens along the way.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+public class TokenizerThroughput {
+
+    /**
+     * The source sizes (in characters) to measure at.
+     */
+    private static final int[] SIZES = new int[] {8 * 1024, 16 * 1024, 32 * 1024, 64 * 1024};
+
+    /**
+     * Source larger than this is only fed to the single-pass tokenizer, the regex tokenizer being too slow.
+     */
+    private static final int REGEX_SIZE_LIMIT = 64 * 1024;
+
+    /**
+     * The number of timed repetitions per measurement.
+     */
+    private static final int REPETITIONS = 5;
+
+    /**
+     * Generates a program of roughly the given size, with nested calls, comments and mixed whitespace.
+     *
+     * @param size  the approximate size of the program in characters
+     * @param seed  the random seed to use
+     * @return      the generated program
+     */
+    private static String generate(int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder source = new StringBuilder();
+        int depth = 0;
+        while (source.length() < size || depth > 0) {
+            int choice = random.nextInt(10);
+            if (source.length() < size && (depth == 0 || choice < 3)) {
+                source.append("(sum");
+                depth++;
+            } else if (choice < 7 || depth == 0) {
+                source.append(' ').append(random.nextInt(1000));
+            } else {
+                source.append(')');
+                depth--;
+            }
+            if (random.nextInt(20) == 0) {
+                source.append(" ; a comment\n");
+            } else if (random.nextInt(8) == 0) {
+                source.append("\r\n\t");
+            }
+        }
+        return source.toString();
+    }
+
+    /**
+     * Checks that two token arrays are identical in text, type and position.
+     *
+     * @param expected  the expected tokens
+     * @param actual    the actual tokens
+     */
+    private static void check(Token[] expected, Token[] actual) {
+        if (expected.length != actual.length) {
+            throw new AssertionError("Token count mismatch: " + expected.length + " vs " + actual.length + ".");
+        }
+        for (int i = 0; i < expected.length; i++) {
+            Token e = expected[i];
+            Token a = actual[i];
+            if (!e.getText().equals(a.getText()) || e.getType() != a.getType() || e.getLine() != a.getLine()
+                    || e.getColumn() != a.getColumn()) {
+                throw new AssertionError("Token mismatch at index " + i + ".");
+            }
+        }
+    }
+
+    /**
+     * Measures the throughput of a tokenizer on a source string.
+     *
+     * @param tokenizer                 the tokenizer to measure
+     * @param source                    the source to tokenize
+     * @return                          the throughput in characters per millisecond
+     * @throws TokenizationException    if tokenization fails
+     */
+    private static double measure(Tokenizer tokenizer, String source) throws TokenizationException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < REPETITIONS; i++) {
+            long start = System.nanoTime();
+            tokenizer.tokenize(source);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return source.length() / (best / 1e6);
+    }
+
+    /**
+     * The program main method.
+     *
+     * @param args                      the command-line arguments passed
+     * @throws TokenizationException    if tokenization fails
+     */
+    public static void main(String[] args) throws TokenizationException {
+        Tokenizer regex = new RegexTokenizer();
+        Tokenizer capriccio = new CapriccioTokenizer();
+
+        System.out.printf("%12s %16s %16s %10s%n", "chars", "regex (c/ms)", "single (c/ms)", "speedup");
+        for (int size : SIZES) {
+            String source = generate(size, size);
+            check(regex.tokenize(source), capriccio.tokenize(source));
+            double regexThroughput = measure(regex, source);
+            double capriccioThroughput = measure(capriccio, source);
+            System.out.printf("%12d %16.1f %16.1f %9.1fx%n", source.length(), regexThroughput, capriccioThroughput,
+                    capriccioThroughput / regexThroughput);
+        }
+
+        // Show that the single-pass tokenizer keeps scaling linearly where the regex tokenizer cannot follow.
+        for (int size = REGEX_SIZE_LIMIT * 16; size <= REGEX_SIZE_LIMIT * 64; size *= 4) {
+            String source = generate(size, size);
+            System.out.printf("%12d %16s %16.1f %10s%n", source.length(), "-", measure(capriccio, source), "-");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import benchmarks.Interpreter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntSupplier;
+
+/**
+ * Represents the interpreter under benchmark, exposed to the benchmarks in the {@code benchmarks} package, which
+ * cannot refer to classes in the default package themselves.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class BenchmarkInterpreter implements Interpreter {
+
+    private Evaluator evaluator;
+
+    private CapriccioTokenizer tokenizer;
+
+    /**
+     * Initialises a new instance of the interpreter under benchmark, with the sample {@code sum} function and the
+     * synthetic {@code cheap} and {@code expensive} functions registered.
+     *
+     * @param arity     the arity of the synthetic functions
+     * @param profiling whether or not to profile evaluation
+     */
+    public BenchmarkInterpreter(int arity, boolean profiling) {
+        evaluator = new Evaluator();
+        evaluator.addFunction(new SumFunction());
+        evaluator.addFunction(new CheapFunction(arity));
+        evaluator.addFunction(new ExpensiveFunction(arity));
+        if (profiling) {
+            evaluator.setProfiler(new Profiler());
+        }
+        tokenizer = new CapriccioTokenizer();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Object tokenize(String source) throws TokenizationException {
+        return tokenizer.tokenize(source);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Object parseTree(Object tokens) throws ParseException {
+        return Expression.parse(new TokenStream((Token[]) tokens));
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Object parseFlat(Object tokens) throws ParseException {
+        return Program.parse(new TokenStream((Token[]) tokens));
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public IntSupplier compile(Object expression) throws EvaluationException {
+        return evaluator.compile((Expression) expression)::evaluate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int evaluateTree(Object expression) throws EvaluationException {
+        return evaluator.evaluate((Expression) expression);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int evaluateFlat(Object program) throws EvaluationException {
+        return evaluator.evaluate((Program) program);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int evaluateParallel(Object program, ForkJoinPool pool) throws EvaluationException {
+        return evaluator.evaluate((Program) program, pool);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int run(String source) throws TokenizationException, ParseException, EvaluationException {
+        return evaluator.evaluate(Program.parse(new TokenStream(tokenizer.tokenize(source))));
+    }
+}
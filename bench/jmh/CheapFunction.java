@@ -0,0 +1,51 @@
+/**
+ * Represents a synthetic, cheap function that adds up its arguments, for any fixed arity.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+public class CheapFunction implements IntNamedFunction {
+
+    private int arity;
+
+    /**
+     * Initialises a new instance of a cheap function.
+     *
+     * @param arity the function arity
+     */
+    public CheapFunction(int arity) {
+        this.arity = arity;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int applyAsInt(int[] args) {
+        int sum = 0;
+        for (int arg : args) {
+            sum += arg;
+        }
+        return sum;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public String getName() {
+        return "cheap";
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public boolean isPure() {
+        return true;
+    }
+}
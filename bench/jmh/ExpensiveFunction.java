@@ -0,0 +1,69 @@
+/**
+ * Represents a synthetic, expensive function that spins for a fixed number of iterations seeded by its arguments, for
+ * any fixed arity.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+public class ExpensiveFunction implements IntNamedFunction {
+
+    /**
+     * The number of iterations spun for on each call.
+     */
+    public static final int ITERATIONS = 1000;
+
+    private int arity;
+
+    /**
+     * Initialises a new instance of an expensive function.
+     *
+     * @param arity the function arity
+     */
+    public ExpensiveFunction(int arity) {
+        this.arity = arity;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int applyAsInt(int[] args) {
+        int x = 1;
+        for (int arg : args) {
+            x = x * 31 + arg;
+        }
+        for (int i = 0; i < ITERATIONS; i++) {
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+        }
+        return x & 0xFFFF;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public String getName() {
+        return "expensive";
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public boolean isPure() {
+        return true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getCost() {
+        return ITERATIONS;
+    }
+}
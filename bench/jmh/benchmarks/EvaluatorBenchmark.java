@@ -0,0 +1,118 @@
+package benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the evaluation phase on its own, comparing the tree-walking evaluator, the stack machine, compiled
+ * expressions and parallel evaluation on generated programs calling the sample {@code sum} function or a synthetic cheap
+ * or expensive function.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EvaluatorBenchmark {
+
+    /**
+     * The random seed programs are generated with.
+     */
+    private static final long SEED = 17;
+
+    /**
+     * The number of arguments passed to each call, fixed to suit the sample function.
+     */
+    private static final int FAN_OUT = 2;
+
+    @Param({"sum", "cheap", "expensive"})
+    public String function;
+
+    @Param({"1000"})
+    public int calls;
+
+    @Param({"16", "256"})
+    public int depth;
+
+    private Interpreter interpreter;
+
+    private Object expression;
+
+    private Object program;
+
+    private IntSupplier compiled;
+
+    /**
+     * Generates, tokenizes, parses and compiles the program to evaluate.
+     *
+     * @throws Exception    if the interpreter could not be loaded or tokenization, parsing or compilation fails
+     */
+    @Setup
+    public void setUp() throws Exception {
+        interpreter = Interpreter.load(FAN_OUT, false);
+        String source = new ProgramGenerator(FAN_OUT, depth, 0, 0, SEED).generate(function, calls);
+        Object tokens = interpreter.tokenize(source);
+        expression = interpreter.parseTree(tokens);
+        program = interpreter.parseFlat(tokens);
+        compiled = interpreter.compile(expression);
+    }
+
+    /**
+     * Evaluates the program by walking its expression tree.
+     *
+     * @return              the result
+     * @throws Exception    if evaluation fails
+     */
+    @Benchmark
+    public int treeWalk() throws Exception {
+        return interpreter.evaluateTree(expression);
+    }
+
+    /**
+     * Evaluates the program on the stack machine.
+     *
+     * @return              the result
+     * @throws Exception    if evaluation fails
+     */
+    @Benchmark
+    public int stackMachine() throws Exception {
+        return interpreter.evaluateFlat(program);
+    }
+
+    /**
+     * Runs the program compiled to a method handle tree.
+     *
+     * @return  the result
+     */
+    @Benchmark
+    public int compiled() {
+        return compiled.getAsInt();
+    }
+
+    /**
+     * Evaluates the program, splitting expensive arguments between the threads of the common pool.
+     *
+     * @return              the result
+     * @throws Exception    if evaluation fails
+     */
+    @Benchmark
+    public int parallel() throws Exception {
+        return interpreter.evaluateParallel(program, ForkJoinPool.commonPool());
+    }
+}
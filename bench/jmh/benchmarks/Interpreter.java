@@ -0,0 +1,112 @@
+package benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntSupplier;
+
+/**
+ * Represents the interpreter under benchmark, as seen from the benchmarks.
+ *
+ * JMH will not generate benchmarks in the default package, and classes in a named package cannot refer to the
+ * interpreter classes, which live in the default package. The interpreter is therefore reached through this interface,
+ * implemented in the default package by {@code BenchmarkInterpreter} and loaded reflectively once during setup, so that
+ * the code being measured only ever makes ordinary interface calls. Tokens, expressions and programs are passed around
+ * opaquely as objects.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public interface Interpreter {
+
+    /**
+     * The name of the class implementing this interface in the default package.
+     */
+    String IMPLEMENTATION = "BenchmarkInterpreter";
+
+    /**
+     * Loads the interpreter, with the sample {@code sum} function and the synthetic {@code cheap} and {@code expensive}
+     * functions registered.
+     *
+     * @param arity                         the arity of the synthetic functions
+     * @param profiling                     whether or not to profile evaluation
+     * @return                              the interpreter
+     * @throws ReflectiveOperationException if the implementation could not be loaded
+     */
+    static Interpreter load(int arity, boolean profiling) throws ReflectiveOperationException {
+        return (Interpreter) Class.forName(IMPLEMENTATION).getConstructor(int.class, boolean.class)
+                .newInstance(arity, profiling);
+    }
+
+    /**
+     * Tokenizes source code.
+     *
+     * @param source        the source code
+     * @return              the tokens
+     * @throws Exception    if tokenization fails
+     */
+    Object tokenize(String source) throws Exception;
+
+    /**
+     * Parses tokens into an expression tree.
+     *
+     * @param tokens        the tokens
+     * @return              the expression tree
+     * @throws Exception    if parsing fails
+     */
+    Object parseTree(Object tokens) throws Exception;
+
+    /**
+     * Parses tokens into a flat program.
+     *
+     * @param tokens        the tokens
+     * @return              the flat program
+     * @throws Exception    if parsing fails
+     */
+    Object parseFlat(Object tokens) throws Exception;
+
+    /**
+     * Compiles an expression tree to a method handle tree.
+     *
+     * @param expression    the expression tree
+     * @return              the compiled expression
+     * @throws Exception    if compilation fails
+     */
+    IntSupplier compile(Object expression) throws Exception;
+
+    /**
+     * Evaluates an expression tree by walking it.
+     *
+     * @param expression    the expression tree
+     * @return              the result
+     * @throws Exception    if evaluation fails
+     */
+    int evaluateTree(Object expression) throws Exception;
+
+    /**
+     * Evaluates a flat program on the stack machine.
+     *
+     * @param program       the flat program
+     * @return              the result
+     * @throws Exception    if evaluation fails
+     */
+    int evaluateFlat(Object program) throws Exception;
+
+    /**
+     * Evaluates a flat program, splitting expensive arguments between the threads of a fork-join pool.
+     *
+     * @param program       the flat program
+     * @param pool          the pool to evaluate on
+     * @return              the result
+     * @throws Exception    if evaluation fails
+     */
+    int evaluateParallel(Object program, ForkJoinPool pool) throws Exception;
+
+    /**
+     * Tokenizes, parses and evaluates source code.
+     *
+     * @param source        the source code
+     * @return              the result
+     * @throws Exception    if tokenization, parsing or evaluation fails
+     */
+    int run(String source) throws Exception;
+}
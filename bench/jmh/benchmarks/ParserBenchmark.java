@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the parsing phase on its own, from tokens into either an expression tree or a flat program, on generated programs of varying size, depth and fan-out.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    /**
+     * The random seed programs are generated with.
+     */
+    private static final long SEED = 17;
+
+    @Param({"100", "10000"})
+    public int calls;
+
+    @Param({"2", "8"})
+    public int fanOut;
+
+    @Param({"16", "1000"})
+    public int depth;
+
+    private Interpreter interpreter;
+
+    private Object tokens;
+
+    /**
+     * Generates and tokenizes the program to parse.
+     *
+     * @throws Exception    if the interpreter could not be loaded or tokenization fails
+     */
+    @Setup
+    public void setUp() throws Exception {
+        interpreter = Interpreter.load(fanOut, false);
+        String source = new ProgramGenerator(fanOut, depth, 0, 0, SEED).generate("cheap", calls);
+        tokens = interpreter.tokenize(source);
+    }
+
+    /**
+     * Parses the program into an expression tree.
+     *
+     * @return              the expression tree
+     * @throws Exception    if parsing fails
+     */
+    @Benchmark
+    public Object tree() throws Exception {
+        return interpreter.parseTree(tokens);
+    }
+
+    /**
+     * Parses the program into a flat program.
+     *
+     * @return              the flat program
+     * @throws Exception    if parsing fails
+     */
+    @Benchmark
+    public Object flat() throws Exception {
+        return interpreter.parseFlat(tokens);
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the whole pipeline end to end, from source text through tokenization and parsing to a result, as the
+ * interpreter runs a program.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    /**
+     * The random seed programs are generated with.
+     */
+    private static final long SEED = 17;
+
+    /**
+     * The number of arguments passed to each call, fixed to suit the sample function.
+     */
+    private static final int FAN_OUT = 2;
+
+    @Param({"sum", "cheap", "expensive"})
+    public String function;
+
+    @Param({"100", "10000"})
+    public int calls;
+
+    @Param({"16"})
+    public int depth;
+
+    @Param({"0.1"})
+    public double commentDensity;
+
+    @Param({"0.1"})
+    public double whitespaceDensity;
+
+    private Interpreter interpreter;
+
+    private String source;
+
+    /**
+     * Generates the program to run and sets up the interpreter.
+     *
+     * @throws ReflectiveOperationException if the interpreter could not be loaded
+     */
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        interpreter = Interpreter.load(FAN_OUT, false);
+        source = new ProgramGenerator(FAN_OUT, depth, commentDensity, whitespaceDensity, SEED)
+                .generate(function, calls);
+    }
+
+    /**
+     * Tokenizes, parses and evaluates the program.
+     *
+     * @return              the result
+     * @throws Exception    if tokenization, parsing or evaluation fails
+     */
+    @Benchmark
+    public int run() throws Exception {
+        return interpreter.run(source);
+    }
+}
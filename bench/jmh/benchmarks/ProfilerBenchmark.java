@@ -0,0 +1,95 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the overhead of profiling on evaluation, with no profiler set and with one recording every call. Compare
+ * the former against {@link EvaluatorBenchmark} from before profiling was added to check that it costs nothing when
+ * switched off.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProfilerBenchmark {
+
+    /**
+     * The random seed programs are generated with.
+     */
+    private static final long SEED = 17;
+
+    /**
+     * The number of arguments passed to each call, fixed to suit the sample function.
+     */
+    private static final int FAN_OUT = 2;
+
+    @Param({"off", "on"})
+    public String profiling;
+
+    @Param({"sum", "cheap"})
+    public String function;
+
+    @Param({"1000"})
+    public int calls;
+
+    @Param({"16"})
+    public int depth;
+
+    private Interpreter interpreter;
+
+    private Object program;
+
+    private IntSupplier compiled;
+
+    /**
+     * Generates and parses the program to evaluate, and sets up the interpreter with or without a profiler.
+     *
+     * @throws Exception    if the interpreter could not be loaded or tokenization, parsing or compilation fails
+     */
+    @Setup
+    public void setUp() throws Exception {
+        interpreter = Interpreter.load(FAN_OUT, profiling.equals("on"));
+        String source = new ProgramGenerator(FAN_OUT, depth, 0, 0, SEED).generate(function, calls);
+        Object tokens = interpreter.tokenize(source);
+        program = interpreter.parseFlat(tokens);
+        compiled = interpreter.compile(interpreter.parseTree(tokens));
+    }
+
+    /**
+     * Evaluates the program on the stack machine.
+     *
+     * @return              the result
+     * @throws Exception    if evaluation fails
+     */
+    @Benchmark
+    public int stackMachine() throws Exception {
+        return interpreter.evaluateFlat(program);
+    }
+
+    /**
+     * Runs the program compiled to a method handle tree.
+     *
+     * @return  the result
+     */
+    @Benchmark
+    public int compiled() {
+        return compiled.getAsInt();
+    }
+}
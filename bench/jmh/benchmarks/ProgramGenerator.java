@@ -0,0 +1,147 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Represents a generator of synthetic Capriccio programs with controlled size, nesting depth, fan-out and comment and
+ * whitespace density, for use as benchmark inputs.
+ *
+ * Every call in a generated program is to the same function, with exactly as many arguments as the fan-out. The first
+ * argument of each call continues a spine of nested calls down to the maximum depth; the rest of the calls are shared
+ * out as evenly as possible between the remaining arguments. Leaves are single-digit literals, so that functions whose
+ * cost depends on their arguments stay affordable however large the program. Generation is deterministic for a seed.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class ProgramGenerator {
+
+    /**
+     * The whitespace runs to choose from when padding between tokens.
+     */
+    private static final String[] PADDING = new String[] {"  ", "\n", "\t", "\r\n    ", " \n\t "};
+
+    private int fanOut;
+
+    private int depth;
+
+    private double commentDensity;
+
+    private double whitespaceDensity;
+
+    private long seed;
+
+    private Random random;
+
+    /**
+     * Initialises a new instance of a program generator.
+     *
+     * @param fanOut            the number of arguments passed to each call, at least one
+     * @param depth             the maximum depth to which calls are nested, at least one
+     * @param commentDensity    the probability of a comment following each token
+     * @param whitespaceDensity the probability of each gap between tokens being padded with extra whitespace
+     * @param seed              the random seed to use
+     */
+    public ProgramGenerator(int fanOut, int depth, double commentDensity, double whitespaceDensity, long seed) {
+        if (fanOut < 1 || depth < 1) {
+            throw new IllegalArgumentException("Fan-out and depth must both be at least 1.");
+        }
+        this.fanOut = fanOut;
+        this.depth = depth;
+        this.commentDensity = commentDensity;
+        this.whitespaceDensity = whitespaceDensity;
+        this.seed = seed;
+    }
+
+    /**
+     * Gets the largest number of calls that fit in a tree of the given number of levels.
+     *
+     * @param levels    the number of levels
+     * @return          the number of calls, saturating at {@link Integer#MAX_VALUE}
+     */
+    private int capacity(int levels) {
+        long capacity = 0;
+        long width = 1;
+        for (int i = 0; i < levels && capacity < Integer.MAX_VALUE; i++) {
+            capacity += width;
+            width = Math.min(width * fanOut, Integer.MAX_VALUE);
+        }
+        return (int) Math.min(capacity, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Appends the gap between two tokens.
+     *
+     * @param source    the source to append to
+     */
+    private void appendGap(StringBuilder source) {
+        if (random.nextDouble() < commentDensity) {
+            source.append(" ; generated comment ").append(random.nextInt(1000)).append('\n');
+        }
+        if (random.nextDouble() < whitespaceDensity) {
+            source.append(PADDING[random.nextInt(PADDING.length)]);
+        } else {
+            source.append(' ');
+        }
+    }
+
+    /**
+     * Appends a call and everything nested within it.
+     *
+     * @param source    the source to append to
+     * @param function  the name of the function to call
+     * @param level     the nesting depth of this call, starting at one
+     * @param calls     the number of calls to generate, including this one
+     * @param spine     whether or not this call continues the spine down to the maximum depth
+     * @return          the number of calls actually generated
+     */
+    private int appendCall(StringBuilder source, String function, int level, int calls, boolean spine) {
+        source.append('(').append(function);
+
+        // Reserve calls for the spine first, then share the rest out evenly.
+        int[] shares = new int[fanOut];
+        int remaining = calls - 1;
+        int childCapacity = capacity(depth - level);
+        if (spine && remaining > 0) {
+            shares[0] = Math.min(remaining, depth - level);
+            remaining -= shares[0];
+        }
+        for (int i = 0; i < fanOut && remaining > 0; i++) {
+            int share = Math.min((remaining + fanOut - i - 1) / (fanOut - i), childCapacity - shares[i]);
+            shares[i] += share;
+            remaining -= share;
+        }
+
+        // Generate arguments.
+        int generated = 1;
+        for (int i = 0; i < fanOut; i++) {
+            appendGap(source);
+            if (shares[i] == 0) {
+                source.append(random.nextInt(10));
+            } else {
+                generated += appendCall(source, function, level + 1, shares[i], spine && i == 0);
+            }
+        }
+        source.append(')');
+        return generated;
+    }
+
+    /**
+     * Generates a program.
+     *
+     * @param function  the name of the function to call, which must take as many arguments as the fan-out
+     * @param calls     the number of calls to generate, capped by how many fit within the maximum depth
+     * @return          the generated program
+     */
+    public String generate(String function, int calls) {
+        random = new Random(seed);
+        StringBuilder source = new StringBuilder();
+        if (random.nextDouble() < commentDensity) {
+            source.append("; generated program\n");
+        }
+        appendCall(source, function, 1, Math.max(calls, 1), true);
+        source.append('\n');
+        return source.toString();
+    }
+}
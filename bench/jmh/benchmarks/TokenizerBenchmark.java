@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the tokenization phase on its own, on generated programs of varying size and comment and whitespace
+ * density.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+
+    /**
+     * The random seed programs are generated with.
+     */
+    private static final long SEED = 17;
+
+    @Param({"100", "10000"})
+    public int calls;
+
+    @Param({"2"})
+    public int fanOut;
+
+    @Param({"16"})
+    public int depth;
+
+    @Param({"0.0", "0.3"})
+    public double commentDensity;
+
+    @Param({"0.0", "0.3"})
+    public double whitespaceDensity;
+
+    private String source;
+
+    private Interpreter interpreter;
+
+    /**
+     * Generates the program to tokenize.
+     *
+     * @throws ReflectiveOperationException if the interpreter could not be loaded
+     */
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        source = new ProgramGenerator(fanOut, depth, commentDensity, whitespaceDensity, SEED).generate("cheap", calls);
+        interpreter = Interpreter.load(fanOut, false);
+    }
+
+    /**
+     * Tokenizes the program.
+     *
+     * @return              the tokens
+     * @throws Exception    if tokenization fails
+     */
+    @Benchmark
+    public Object tokenize() throws Exception {
+        return interpreter.tokenize(source);
+    }
+}
@@ -16,6 +16,18 @@ public class Atom extends Expression {
         super(ExpressionType.ATOM);
     }
 
+    /**
+     * Initialises a new instance of an atomic value from the token it was read from.
+     *
+     * @param token the token
+     * @param value the value the token represents
+     */
+    Atom(Token token, int value) {
+        this();
+        this.token = token;
+        this.value = value;
+    }
+
     /**
      * Gets the value this token represents.
      *
@@ -0,0 +1,247 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Represents a service that reads many programs from a stream, evaluates them concurrently on a shared worker pool and
+ * writes their results to another stream as they complete.
+ *
+ * Programs are separated by a delimiter character (usually newline or NUL). One line of output is written for each
+ * program, holding either its result or an error message prefixed with {@code error: }. Results are written in input
+ * order if requested, otherwise as soon as they are ready, each prefixed with the zero-based index of its program. The
+ * number of programs read but not yet written out is bounded, so reading stalls when evaluation or output falls behind.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class BatchRunner {
+
+    /**
+     * The default maximum number of programs read but not yet written out.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+    /**
+     * Represents the destination of results, ordering them if required.
+     */
+    private static class Output {
+
+        private Writer writer;
+
+        private boolean ordered;
+
+        private Semaphore permits;
+
+        private Map<Long, String> pending;
+
+        private long next;
+
+        private IOException failure;
+
+        /**
+         * Initialises a new instance of a result destination.
+         *
+         * @param writer    the writer to write results to
+         * @param ordered   whether or not results must be written in input order
+         * @param permits   the permits to release as each result is written
+         */
+        private Output(Writer writer, boolean ordered, Semaphore permits) {
+            this.writer = writer;
+            this.ordered = ordered;
+            this.permits = permits;
+            pending = new HashMap<Long, String>();
+            next = 0;
+            failure = null;
+        }
+
+        /**
+         * Writes a single line of output, remembering the first failure to do so.
+         *
+         * @param line  the line to write
+         */
+        private void write(String line) {
+            if (failure == null) {
+                try {
+                    writer.write(line);
+                    writer.write('\n');
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        /**
+         * Accepts the result of a program, writing it and any results it was holding up.
+         *
+         * @param index     the index of the program
+         * @param result    the result text
+         */
+        private synchronized void complete(long index, String result) {
+            int written = 0;
+            if (ordered) {
+                pending.put(index, result);
+                String buffer;
+                while ((buffer = pending.remove(next)) != null) {
+                    write(buffer);
+                    next++;
+                    written++;
+                }
+            } else {
+                write(index + " " + result);
+                written++;
+            }
+            if (written > 0 && failure == null) {
+                try {
+                    writer.flush();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            permits.release(written);
+        }
+
+        /**
+         * Gets the first failure encountered writing output.
+         *
+         * @return  the failure, or null if there was none
+         */
+        private synchronized IOException getFailure() {
+            return failure;
+        }
+    }
+
+    private Evaluator evaluator;
+
+    private ExecutorService executor;
+
+    private char delimiter;
+
+    private boolean ordered;
+
+    private int maxInFlight;
+
+    /**
+     * Initialises a new instance of a batch runner.
+     *
+     * @param evaluator     the evaluator to evaluate programs with, shared by all workers
+     * @param executor      the worker pool to evaluate programs on
+     * @param delimiter     the character separating programs in the input
+     * @param ordered       whether or not results must be written in input order
+     * @param maxInFlight   the maximum number of programs read but not yet written out
+     */
+    public BatchRunner(Evaluator evaluator, ExecutorService executor, char delimiter, boolean ordered,
+            int maxInFlight) {
+        this.evaluator = evaluator;
+        this.executor = executor;
+        this.delimiter = delimiter;
+        this.ordered = ordered;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Creates a pool of worker threads to evaluate programs on. Virtual threads are used where the runtime supports
+     * them and no thread count is given.
+     *
+     * @param threads   the number of worker threads, or zero or less to choose automatically
+     * @return          the worker pool
+     */
+    public static ExecutorService newWorkerPool(int threads) {
+        if (threads <= 0) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                threads = Runtime.getRuntime().availableProcessors(); // No virtual threads, fall back.
+            }
+        }
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Tokenizes, parses and evaluates a single program, describing any failure instead of throwing it.
+     *
+     * @param source    the program source
+     * @return          the result of evaluation, or an error message prefixed with {@code error: }
+     */
+    public String evaluate(String source) {
+        try {
+            Tokenizer tokenizer = new CapriccioTokenizer();
+            Program program = Program.parse(new TokenStream(tokenizer.tokenize(source)));
+            return Integer.toString(evaluator.evaluate(program));
+        } catch (TokenizationException | ParseException | EvaluationException e) {
+            return "error: " + e.getMessage(); // Tokenizer, parser or evaluator rejected source.
+        } catch (RuntimeException | Error e) {
+            return "error: " + e; // Function failed.
+        }
+    }
+
+    /**
+     * Reads the next program from the input.
+     *
+     * @param input         the input to read from
+     * @return              the program source, or null if the end of the input has been reached
+     * @throws IOException  if reading fails
+     */
+    private String readProgram(Reader input) throws IOException {
+        StringBuilder source = new StringBuilder();
+        int character;
+        while ((character = input.read()) != -1) {
+            if (character == delimiter) {
+                return source.toString();
+            }
+            source.append((char) character);
+        }
+        return source.length() == 0 ? null : source.toString(); // Final program may not be delimited.
+    }
+
+    /**
+     * Reads programs from an input until it ends, evaluating each on the worker pool and writing results to an output.
+     * Returns once every result has been written.
+     *
+     * @param input                 the input to read programs from
+     * @param output                the output to write results to
+     * @return                      the number of programs read
+     * @throws IOException          if reading input or writing output fails
+     * @throws InterruptedException if interrupted while waiting for results
+     */
+    public long run(Reader input, Writer output) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(input);
+        Semaphore permits = new Semaphore(maxInFlight);
+        Output results = new Output(output, ordered, permits);
+
+        // Submit programs as we read them, waiting for room when too many are outstanding.
+        long count = 0;
+        String source;
+        while ((source = readProgram(reader)) != null && results.getFailure() == null) {
+            permits.acquire();
+            long index = count++;
+            String program = source;
+            executor.execute(() -> {
+                String result = "error: Evaluation did not complete.";
+                try {
+                    result = evaluate(program);
+                } finally {
+                    results.complete(index, result); // Always release the permit, or run would wait forever.
+                }
+            });
+        }
+
+        // Wait for every result to be written.
+        permits.acquire(maxInFlight);
+        permits.release(maxInFlight);
+        if (results.getFailure() != null) {
+            throw results.getFailure();
+        }
+        return count;
+    }
+}
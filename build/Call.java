@@ -22,6 +22,19 @@ public class Call extends Expression {
         expressions = new Expression[] {};
     }
 
+    /**
+     * Initialises a new instance of a function call from its function identifier token and argument expressions.
+     *
+     * @param token         the function identifier token
+     * @param expressions   the expressions that make up the function call
+     */
+    Call(Token token, Expression[] expressions) {
+        this();
+        this.token = token;
+        this.expressions = expressions;
+        this.identifier = token.getText();
+    }
+
     /**
      * Gets the expressions that make up the function call.
      *
@@ -1,113 +1,345 @@
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 
 /**
  * Represents a service capable of transforming Capriccio source code into a token array.
  *
+ * Source is scanned in a single pass with a cursor that tracks line and column positions as it goes, so tokenization
+ * runs in time linear in the length of the source. Tokens and errors are identical to those produced by the original
+ * regular expression based tokenizer, kept alongside the benchmarks as {@code RegexTokenizer}.
+ *
  * @since 23/11/19
  * @author Saul Johnson <saul.a.johnson@gmail.com>
  */
 public class CapriccioTokenizer implements Tokenizer {
 
     /**
-     * Contains token templates for all token types recognized by the tokenizer.
+     * The number of characters to buffer at a time when reading from a stream.
      */
-    private static final TokenTemplate[] tokenTemplates = new TokenTemplate[] {
-            // Ignore comments.
-            new TokenTemplate(";.+", TokenType.LINE_COMMENT, true),
-            // Ignore all whitespace.
-            new TokenTemplate("[ \\t\\r\\n]+", TokenType.WHITESPACE, true),
-            // Punctuation.
-            new TokenTemplate("\\(", TokenType.OPEN_PARENTHESIS),
-            new TokenTemplate("\\)", TokenType.CLOSE_PARENTHESIS),
-            // Free-form identifiers and integers.
-            new TokenTemplate("\\b[0-9]+\\b", TokenType.INTEGER),
-            new TokenTemplate("\\b[a-zA-Z_]\\w*\\b", TokenType.IDENTIFIER),
-    };
+    private static final int BUFFER_SIZE = 8192;
 
     /**
-     * Counts the number of newlines in a string.
-     *
-     * @param source    the string to count the newlines in
-     * @return          the number of newlines in the string
+     * The text of an opening parenthesis token, shared between all such tokens.
+     */
+    private static final String OPEN_PARENTHESIS_TEXT = "(";
+
+    /**
+     * The text of a closing parenthesis token, shared between all such tokens.
      */
-    private static int countNewlines(String source) {
-        int count = 0;
-        for (int i = 0; i < source.length(); i++) {
-            if (source.charAt(i) == '\n'){
-                count++;
+    private static final String CLOSE_PARENTHESIS_TEXT = ")";
+
+    /**
+     * Represents a cursor over a character source that tracks line and column positions.
+     */
+    private static class Cursor {
+
+        private Readable source;
+
+        private CharBuffer buffer;
+
+        private boolean exhausted;
+
+        private int line;
+
+        private int column;
+
+        /**
+         * Initialises a new instance of a cursor over a character source.
+         *
+         * @param source    the character source to read from
+         */
+        private Cursor(Readable source) {
+            this.source = source;
+            buffer = CharBuffer.allocate(BUFFER_SIZE);
+            buffer.flip(); // Start out empty, in read mode.
+            exhausted = false;
+            line = 1;
+            column = 1;
+        }
+
+        /**
+         * Returns the character a given distance ahead of the cursor without consuming it.
+         *
+         * @param distance      the distance ahead of the cursor to look
+         * @return              the character, or -1 if the end of the source lies before it
+         * @throws IOException  if reading from the underlying source fails
+         */
+        private int peek(int distance) throws IOException {
+            while (buffer.remaining() <= distance && !exhausted) {
+                buffer.compact();
+                if (source.read(buffer) == -1) {
+                    exhausted = true;
+                }
+                buffer.flip();
             }
+            return buffer.remaining() > distance ? buffer.get(buffer.position() + distance) : -1;
+        }
+
+        /**
+         * Returns the code point under the cursor without consuming it, combining surrogate pairs.
+         *
+         * @return              the code point, or -1 if the end of the source has been reached
+         * @throws IOException  if reading from the underlying source fails
+         */
+        private int peekCodePoint() throws IOException {
+            int high = peek(0);
+            if (high != -1 && Character.isHighSurrogate((char) high)) {
+                int low = peek(1);
+                if (low != -1 && Character.isLowSurrogate((char) low)) {
+                    return Character.toCodePoint((char) high, (char) low);
+                }
+            }
+            return high;
+        }
+
+        /**
+         * Consumes the character under the cursor, advancing the line and column position.
+         *
+         * @return  the character consumed
+         */
+        private char advance() {
+            char character = buffer.get();
+            if (character == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+            return character;
         }
-        return count;
     }
 
     /**
-     * Gets the current line position in the source.
+     * Represents a readable source that decodes characters from a byte buffer (which may be memory-mapped) on demand.
+     */
+    private static class DecodingSource implements Readable {
+
+        private ByteBuffer bytes;
+
+        private CharsetDecoder decoder;
+
+        private boolean flushed;
+
+        /**
+         * Initialises a new instance of a readable source that decodes characters from a byte buffer.
+         *
+         * @param bytes     the bytes to decode
+         * @param charset   the character set to decode with
+         */
+        private DecodingSource(ByteBuffer bytes, Charset charset) {
+            this.bytes = bytes;
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            flushed = false;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int read(CharBuffer target) {
+            if (flushed) {
+                return -1;
+            }
+            int start = target.position();
+            CoderResult result = decoder.decode(bytes, target, true);
+            if (result.isUnderflow() && decoder.flush(target).isUnderflow()) {
+                flushed = true; // All input consumed and decoder flushed.
+            }
+            int read = target.position() - start;
+            return read == 0 && flushed ? -1 : read;
+        }
+    }
+
+    /**
+     * Gets whether or not a character may appear in a line comment (i.e. is not a line terminator).
+     *
+     * @param character the character, or -1 for end of source
+     * @return          true if the character may appear in a line comment, otherwise false
+     */
+    private static boolean isCommentCharacter(int character) {
+        return character != -1 && character != '\n' && character != '\r' && character != '\u0085'
+                && character != '\u2028' && character != '\u2029';
+    }
+
+    /**
+     * Gets whether or not a character is ignorable whitespace.
      *
-     * @param source    the complete source
-     * @param remaining the source remaining to tokenize
-     * @return          the current line position in the source
+     * @param character the character, or -1 for end of source
+     * @return          true if the character is whitespace, otherwise false
      */
-    private static int getLinePosition(String source, String remaining)
-    {
-        return countNewlines(source) - countNewlines(remaining) + 1;
+    private static boolean isWhitespace(int character) {
+        return character == ' ' || character == '\t' || character == '\r' || character == '\n';
     }
 
     /**
-     * Gets the current column position in the source.
+     * Gets whether or not a character is a decimal digit.
      *
-     * @param source    the complete source
-     * @param remaining the source remaining to tokenize
-     * @return          the current column position in the source
+     * @param character the character, or -1 for end of source
+     * @return          true if the character is a decimal digit, otherwise false
      */
-    private static int getColumnPosition(String source, String remaining)
-    {
-        String processed = source.substring(0, source.length() - remaining.length());
-        return processed.length() - processed.lastIndexOf('\n');
+    private static boolean isDigit(int character) {
+        return character >= '0' && character <= '9';
+    }
+
+    /**
+     * Gets whether or not a character may begin an identifier.
+     *
+     * @param character the character, or -1 for end of source
+     * @return          true if the character may begin an identifier, otherwise false
+     */
+    private static boolean isIdentifierStart(int character) {
+        return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z') || character == '_';
+    }
+
+    /**
+     * Gets whether or not a character may continue an identifier.
+     *
+     * @param character the character, or -1 for end of source
+     * @return          true if the character may continue an identifier, otherwise false
+     */
+    private static boolean isIdentifierPart(int character) {
+        return isIdentifierStart(character) || isDigit(character);
+    }
+
+    /**
+     * Gets whether or not a code point following a word prevents that word from ending at a word boundary. This mirrors
+     * the rules used by the regular expression word boundary matcher, which considers letters and digits from all
+     * scripts to be part of a word, along with non-spacing marks that follow a letter or digit.
+     *
+     * @param codePoint the code point, or -1 for end of source
+     * @param previous  the last character of the word
+     * @return          true if the code point continues the word, otherwise false
+     */
+    private static boolean isWordContinuation(int codePoint, char previous) {
+        return codePoint != -1 && (codePoint == '_' || Character.isLetterOrDigit(codePoint)
+                || (Character.getType(codePoint) == Character.NON_SPACING_MARK && Character.isLetterOrDigit(previous)));
+    }
+
+    /**
+     * Creates the exception thrown when an unexpected character is encountered.
+     *
+     * @param character the unexpected character
+     * @param line      the line at which the character occurs
+     * @param column    the column at which the character occurs
+     * @return          the exception
+     */
+    private static TokenizationException unexpectedCharacter(int character, int line, int column) {
+        return new TokenizationException("Unexpected character '" + (char) character + "' at line "+ line + " column" +
+                " " + column + ".", line, column);
     }
 
     /**
      * @inheritDoc
      */
     public Token[] tokenize(String source) throws TokenizationException {
+        try {
+            return tokenize(CharBuffer.wrap(source));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Should never be triggered, strings are not backed by I/O.
+        }
+    }
+
+    /**
+     * Converts source code held in a file into a token array, memory-mapping the file rather than reading it into a
+     * string up front. The file is decoded using the platform default character set.
+     *
+     * @param path                      the path of the file to convert
+     * @return                          the resulting token array
+     * @throws TokenizationException    if an unexpected character is encountered
+     * @throws IOException              if the file could not be read
+     */
+    public Token[] tokenize(Path path) throws TokenizationException, IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return tokenize(new DecodingSource(bytes, Charset.defaultCharset()));
+        }
+    }
+
+    /**
+     * Converts source code read from a character source (such as a {@link java.io.Reader} or {@link CharBuffer}) into
+     * a token array. The source is read incrementally and need not fit in memory as a single string.
+     *
+     * @param source                    the character source to read from
+     * @return                          the resulting token array
+     * @throws TokenizationException    if an unexpected character is encountered
+     * @throws IOException              if reading from the source fails
+     */
+    public Token[] tokenize(Readable source) throws TokenizationException, IOException {
 
         // We're going to return an array of tokens, build it here.
-        List<Token> tokens = new LinkedList<Token>();
-
-        // Tokenize input.
-        String remaining = source;
-        while (remaining != null && !remaining.equals(""))
-        {
-            // Track position in text.
-            int line = getLinePosition(source, remaining);
-            int column = getColumnPosition(source, remaining);
-
-            // Try to match each template against start of input.
-            boolean matches = false;
-            for (TokenTemplate tokenTemplate : tokenTemplates)
-            {
-                Matcher matcher = tokenTemplate.getPattern().matcher(remaining);
-                if (matcher.find() && matcher.start() == 0)
-                {
-                    // Add token of matching type.
-                    if (!tokenTemplate.isIgnored()) {
-                        tokens.add(new Token(matcher.group(), tokenTemplate.getType(), line, column));
-                    }
-
-                    // Trim string from beginning of source.
-                    remaining = matcher.replaceFirst("");
-                    matches = true;
-                    break;
+        List<Token> tokens = new ArrayList<Token>();
+
+        // Tokenize input in a single pass.
+        Cursor cursor = new Cursor(source);
+        StringBuilder text = new StringBuilder();
+        int character;
+        while ((character = cursor.peek(0)) != -1) {
+
+            // Remember where this token starts.
+            int line = cursor.line;
+            int column = cursor.column;
+
+            if (character == ';' && isCommentCharacter(cursor.peek(1))) {
+
+                // Ignore comments, which run to the end of the line.
+                do {
+                    cursor.advance();
+                } while (isCommentCharacter(cursor.peek(0)));
+            } else if (isWhitespace(character)) {
+
+                // Ignore all whitespace.
+                do {
+                    cursor.advance();
+                } while (isWhitespace(cursor.peek(0)));
+            } else if (character == '(') {
+
+                // Opening parenthesis.
+                cursor.advance();
+                tokens.add(new Token(OPEN_PARENTHESIS_TEXT, TokenType.OPEN_PARENTHESIS, line, column));
+            } else if (character == ')') {
+
+                // Closing parenthesis.
+                cursor.advance();
+                tokens.add(new Token(CLOSE_PARENTHESIS_TEXT, TokenType.CLOSE_PARENTHESIS, line, column));
+            } else if (isDigit(character)) {
+
+                // Integers must end at a word boundary.
+                text.setLength(0);
+                do {
+                    text.append(cursor.advance());
+                } while (isDigit(cursor.peek(0)));
+                if (isWordContinuation(cursor.peekCodePoint(), text.charAt(text.length() - 1))) {
+                    throw unexpectedCharacter(character, line, column);
                 }
-            }
+                tokens.add(new Token(text.toString(), TokenType.INTEGER, line, column));
+            } else if (isIdentifierStart(character)) {
+
+                // Identifiers must also end at a word boundary.
+                text.setLength(0);
+                do {
+                    text.append(cursor.advance());
+                } while (isIdentifierPart(cursor.peek(0)));
+                if (isWordContinuation(cursor.peekCodePoint(), text.charAt(text.length() - 1))) {
+                    throw unexpectedCharacter(character, line, column);
+                }
+                tokens.add(new Token(text.toString(), TokenType.IDENTIFIER, line, column));
+            } else {
 
-            // Unexpected character encountered.
-            if (!matches)
-            {
-                char character = remaining.charAt(0);
-                throw new TokenizationException("Unexpected character '" + character + "' at line "+ line + " column" +
-                        " " + column + ".", line, column);
+                // Unexpected character encountered.
+                throw unexpectedCharacter(character, line, column);
             }
         }
 
@@ -0,0 +1,52 @@
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Represents a Capriccio expression that has been compiled against a set of functions, ready to be run repeatedly.
+ *
+ * All function lookups and arity checks are performed once, at compile time. Running a compiled expression invokes a
+ * single method handle tree that calls straight through to each function.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+public class CompiledExpression {
+
+    private Expression expression;
+
+    private MethodHandle handle;
+
+    /**
+     * Initialises a new instance of a compiled expression.
+     *
+     * @param expression    the expression that was compiled
+     * @param handle        the method handle implementing the expression, taking no arguments and returning an int
+     */
+    CompiledExpression(Expression expression, MethodHandle handle) {
+        this.expression = expression;
+        this.handle = handle;
+    }
+
+    /**
+     * Gets the expression that was compiled.
+     *
+     * @return  the expression
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Runs the compiled expression.
+     *
+     * @return  the result of evaluation
+     */
+    public int evaluate() {
+        try {
+            return (int) handle.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e; // Failures inside functions propagate as they would from the evaluator.
+        } catch (Throwable e) {
+            throw new IllegalStateException(e); // Should never be triggered, functions throw no checked exceptions.
+        }
+    }
+}
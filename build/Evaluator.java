@@ -1,5 +1,14 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Represents a service capable of evaluating Capriccio expressions.
@@ -9,22 +18,352 @@ import java.util.LinkedList;
  */
 public class Evaluator {
 
-    private List<NamedFunction<int[], Integer>> functions;
+    /**
+     * The default estimated cost at or above which an argument is evaluated as a separate task during parallel
+     * evaluation.
+     */
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 10000;
+
+    /**
+     * Represents a call whose evaluation is suspended while one of its arguments is evaluated, with any other expensive
+     * arguments evaluated as separate tasks in the meantime.
+     */
+    private static class Frame {
+
+        private int end;
+
+        private int[] childStarts;
+
+        private int[] args;
+
+        private EvaluationTask[] tasks;
+
+        private int continued;
+
+        private int child;
+
+        /**
+         * Initialises a new instance of a suspended call.
+         *
+         * @param end           the index of the call instruction
+         * @param childStarts   the index of the first instruction of each argument
+         */
+        private Frame(int end, int[] childStarts) {
+            this.end = end;
+            this.childStarts = childStarts;
+            args = new int[childStarts.length];
+            tasks = new EvaluationTask[childStarts.length];
+            continued = -1;
+            child = 0;
+        }
+
+        /**
+         * Gets the index just past the last instruction of an argument.
+         *
+         * @param index the argument index
+         * @return      the index just past the argument
+         */
+        private int childEnd(int index) {
+            return index + 1 < childStarts.length ? childStarts[index + 1] : end;
+        }
+    }
+
+    /**
+     * Represents the task of evaluating a single expression within a {@link Program}, splitting expensive arguments
+     * off into tasks of their own.
+     */
+    private static class EvaluationTask extends RecursiveAction {
+
+        private Program program;
+
+        private IntNamedFunction[] resolved;
+
+        private int[] starts;
+
+        private long[] costs;
+
+        private long threshold;
+
+        private int end;
+
+        private int value;
+
+        private Exception failure;
+
+        /**
+         * Initialises a new instance of an expression evaluation task.
+         *
+         * @param program   the program
+         * @param resolved  the functions corresponding to each identifier, null where unknown
+         * @param starts    the index of the first instruction of the expression ending at each instruction
+         * @param costs     the running total of estimated instruction costs, one longer than the program
+         * @param threshold the estimated cost at or above which an argument is evaluated as a separate task
+         * @param end       the index of the last instruction of the expression to evaluate
+         */
+        private EvaluationTask(Program program, IntNamedFunction[] resolved, int[] starts, long[] costs,
+                long threshold, int end) {
+            this.program = program;
+            this.resolved = resolved;
+            this.starts = starts;
+            this.costs = costs;
+            this.threshold = threshold;
+            this.end = end;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        @Override
+        protected void compute() {
+            try {
+                value = evaluateExpression();
+            } catch (EvaluationException | RuntimeException e) {
+                failure = e; // Reported by whoever joins this task, in source order.
+            }
+        }
+
+        /**
+         * Gets the estimated cost of the expression ending at an instruction.
+         *
+         * @param index the index of the last instruction of the expression
+         * @return      the estimated cost
+         */
+        private long cost(int index) {
+            return costs[index + 1] - costs[starts[index]];
+        }
+
+        /**
+         * Gets whether or not the expression ending at an instruction is a call worth evaluating as a separate task.
+         *
+         * @param index the index of the last instruction of the expression
+         * @return      true if the expression is expensive, otherwise false
+         */
+        private boolean isExpensive(int index) {
+            return program.getOpcode(index) == Program.CALL && cost(index) >= threshold;
+        }
+
+        /**
+         * Begins evaluation of a call by working out where each of its arguments lie, then forking every expensive
+         * argument except the most expensive, which is left for this thread to evaluate.
+         *
+         * @param index the index of the call instruction
+         * @return      the suspended call
+         */
+        private Frame frame(int index) {
+            int[] childStarts = new int[program.getArity(index)];
+            int childEnd = index;
+            for (int i = childStarts.length - 1; i >= 0; i--) {
+                childStarts[i] = starts[childEnd - 1];
+                childEnd = childStarts[i];
+            }
+            Frame frame = new Frame(index, childStarts);
+
+            // Keep the most expensive argument, so every task forked costs at most half as much as this call.
+            long largest = -1;
+            for (int i = 0; i < childStarts.length; i++) {
+                int childLast = frame.childEnd(i) - 1;
+                if (isExpensive(childLast) && cost(childLast) > largest) {
+                    largest = cost(childLast);
+                    frame.continued = i;
+                }
+            }
+            for (int i = 0; i < childStarts.length; i++) {
+                int childLast = frame.childEnd(i) - 1;
+                if (i != frame.continued && isExpensive(childLast)) {
+                    frame.tasks[i] = new EvaluationTask(program, resolved, starts, costs, threshold, childLast);
+                    frame.tasks[i].fork();
+                }
+            }
+            return frame;
+        }
+
+        /**
+         * Finds the first failure in source order once evaluation has failed, cancelling every task whose result is no
+         * longer needed.
+         *
+         * Each suspended call has its arguments before the one being evaluated forked or already evaluated, and all of
+         * these come before the point of failure in source order, outermost call first.
+         *
+         * @param suspended the suspended calls, innermost first
+         * @param failure   the failure
+         * @return          the first failure in source order
+         */
+        private static Exception firstFailure(Deque<Frame> suspended, Exception failure) {
+            Exception first = null;
+            Iterator<Frame> frames = suspended.descendingIterator();
+            while (frames.hasNext()) {
+                Frame frame = frames.next();
+                for (int i = 0; i < frame.tasks.length; i++) {
+                    EvaluationTask task = frame.tasks[i];
+                    if (task != null && first == null && i < frame.child) {
+                        task.join();
+                        first = task.failure;
+                    } else if (task != null) {
+                        task.cancel(false); // Result no longer needed.
+                    }
+                }
+            }
+            return first == null ? failure : first;
+        }
+
+        /**
+         * Evaluates the expression this task was created for.
+         *
+         * Calls are descended into iteratively, following the most expensive argument of each while the others are
+         * forked, so long chains of calls never deepen the stack. As any task forked costs at most half as much as the
+         * call it was forked from, joining tasks nests at most logarithmically deep in the total cost of the program.
+         *
+         * @return                      the result of evaluation
+         * @throws EvaluationException  if evaluation fails
+         */
+        private int evaluateExpression() throws EvaluationException {
+            int[] stack = new int[program.getMaxStackDepth()];
+            Deque<Frame> suspended = new ArrayDeque<Frame>();
+            try {
+
+                // Descend until we reach a call with no expensive arguments, evaluating cheap arguments on the way.
+                int index = end;
+                int result;
+                while (true) {
+                    Frame frame = isExpensive(index) ? frame(index) : null;
+                    if (frame == null || frame.continued == -1) {
+                        result = run(program, resolved, starts[index], index + 1, stack);
+                        break;
+                    }
+                    suspended.push(frame);
+                    for (frame.child = 0; frame.child < frame.continued; frame.child++) {
+                        if (frame.tasks[frame.child] == null) {
+                            frame.args[frame.child] = run(program, resolved, frame.childStarts[frame.child],
+                                    frame.childEnd(frame.child), stack);
+                        }
+                    }
+                    index = frame.childEnd(frame.continued) - 1;
+                }
+
+                // Resume suspended calls, collecting the rest of their arguments in source order.
+                while (!suspended.isEmpty()) {
+                    Frame frame = suspended.peek();
+                    frame.args[frame.continued] = result;
+                    for (frame.child = 0; frame.child < frame.args.length; frame.child++) {
+                        EvaluationTask task = frame.tasks[frame.child];
+                        if (task != null) {
+                            task.join();
+                            if (task.failure != null) {
+                                rethrow(task.failure);
+                            }
+                            frame.args[frame.child] = task.value;
+                        } else if (frame.child > frame.continued) {
+                            frame.args[frame.child] = run(program, resolved, frame.childStarts[frame.child],
+                                    frame.childEnd(frame.child), stack);
+                        }
+                    }
+                    result = getCalledFunction(program, resolved, frame.end).applyAsInt(frame.args);
+                    suspended.pop();
+                }
+                return result;
+            } catch (EvaluationException | RuntimeException e) {
+                rethrow(firstFailure(suspended, e));
+                return 0; // Should never be triggered, failures are always rethrown.
+            }
+        }
+    }
+
+    private List<IntNamedFunction> functions;
+
+    private ResultCache resultCache;
+
+    private Profiler profiler;
+
+    private long parallelThreshold;
 
     /**
      * Initialises a new instance of a service capable of evaluating Capriccio expressions.
      */
     public Evaluator() {
-        functions = new LinkedList<NamedFunction<int[], Integer>>();
+        functions = new LinkedList<IntNamedFunction>();
+        resultCache = null;
+        profiler = null;
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
     }
 
     /**
-     * Adds a function to those usable from expressions evaluated by this evaluator.
+     * Adds a function to those usable from expressions evaluated by this evaluator. Functions that do not implement
+     * {@link IntNamedFunction} are adapted to it, so they still work but box their results on every call.
      *
      * @param function  the function to add
      */
     public void addFunction(NamedFunction<int[], Integer> function) {
-        functions.add(function);
+        functions.add(IntNamedFunction.of(function));
+    }
+
+    /**
+     * Sets the cache to serve function results from, memoizing calls to functions for which the cache is enabled.
+     *
+     * @param resultCache   the result cache, or null to disable memoization
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Gets the cache function results are served from.
+     *
+     * @return  the result cache, or null if memoization is disabled
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the profiler to record evaluation with. While set, every function call made is counted and timed, and the
+     * time taken to resolve functions and evaluate programs is recorded along with the depth they reach.
+     *
+     * @param profiler  the profiler, or null to disable profiling
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Gets the profiler evaluation is recorded with.
+     *
+     * @return  the profiler, or null if profiling is disabled
+     */
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Sets the estimated cost at or above which an argument is evaluated as a separate task during parallel
+     * evaluation. Every instruction costs one, plus the cost reported by {@link NamedFunction#getCost()} for calls.
+     *
+     * @param parallelThreshold the estimated cost threshold
+     */
+    public void setParallelThreshold(long parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Gets the estimated cost at or above which an argument is evaluated as a separate task during parallel
+     * evaluation.
+     *
+     * @return  the estimated cost threshold
+     */
+    public long getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Rethrows an exception caught during evaluation.
+     *
+     * @param e                     the exception, either an evaluation exception or a runtime exception
+     * @throws EvaluationException  if the exception is an evaluation exception
+     */
+    private static void rethrow(Exception e) throws EvaluationException {
+        if (e instanceof EvaluationException) {
+            throw (EvaluationException) e;
+        }
+        throw (RuntimeException) e;
     }
 
     /**
@@ -33,15 +372,60 @@ public class Evaluator {
      * @param name  the name
      * @return      the function
      */
-    private NamedFunction<int[], Integer> getFunction(String name) {
-        for (NamedFunction<int[], Integer> function : functions) {
+    IntNamedFunction getFunction(String name) {
+        for (IntNamedFunction function : functions) {
             if (function.getName().equals(name)) {
-                return function;
+                IntNamedFunction memoized = resultCache == null ? function : resultCache.memoize(function);
+                return profiler == null ? memoized : profiler.instrument(memoized);
             }
         }
         return null;
     }
 
+    /**
+     * Resolves each entry in the identifier table of a {@link Program} to a function.
+     *
+     * @param program   the program
+     * @return          the functions corresponding to each identifier, null where unknown
+     */
+    private IntNamedFunction[] resolveFunctions(Program program) {
+        Profiler.PhaseTimer timer = profiler == null ? null : profiler.startPhase(Profiler.Phase.RESOLVE);
+        String[] identifiers = program.getIdentifiers();
+        IntNamedFunction[] resolved = new IntNamedFunction[identifiers.length];
+        for (int i = 0; i < identifiers.length; i++) {
+            resolved[i] = getFunction(identifiers[i]);
+        }
+        if (timer != null) {
+            timer.stop();
+        }
+        return resolved;
+    }
+
+    /**
+     * Starts timing the evaluation of a {@link Program}, if profiling.
+     *
+     * @param program   the program about to be evaluated
+     * @return          the timer, or null if profiling is disabled
+     */
+    private Profiler.PhaseTimer startEvaluation(Program program) {
+        if (profiler == null) {
+            return null;
+        }
+        profiler.recordDepth(program.getNestingDepth());
+        return profiler.startPhase(Profiler.Phase.EVALUATE);
+    }
+
+    /**
+     * Optimizes a {@link Program} against the functions currently added to this evaluator. Calls to pure functions
+     * with constant arguments are computed ahead of time, once for each distinct call rather than once per occurrence.
+     *
+     * @param program   the program to optimize
+     * @return          the optimized program
+     */
+    public Program optimize(Program program) {
+        return program.optimize(resolveFunctions(program));
+    }
+
     /**
      * Evaluates an {@link Expression}.
      *
@@ -70,7 +454,7 @@ public class Evaluator {
                 // Attempt to retrieve function.
                 Token functionNameToken = call.getToken();
                 String functionName = call.getIdentifier();
-                NamedFunction<int[], Integer> func = getFunction(functionName);
+                IntNamedFunction func = getFunction(functionName);
                 if (func == null) {
                     throw new EvaluationException("Unknown function " + call.getIdentifier(),
                             functionNameToken.getLine(), functionNameToken.getColumn());
@@ -84,7 +468,7 @@ public class Evaluator {
                 }
 
                 // Apply function to arguments and return result.
-                return func.apply(evaluatedArgs);
+                return func.applyAsInt(evaluatedArgs);
         }
 
         // Check we have a source code location.
@@ -96,4 +480,250 @@ public class Evaluator {
             throw new EvaluationException("Unknown expression", 0, 0); // No token, no idea what happened.
         }
     }
+
+    /**
+     * Gets the function called by a {@link Program#CALL} instruction, checking that it exists and has the right arity.
+     *
+     * @param program               the program
+     * @param resolved              the functions corresponding to each identifier, null where unknown
+     * @param index                 the index of the instruction
+     * @return                      the function
+     * @throws EvaluationException  if the function is unknown or has the wrong arity
+     */
+    private static IntNamedFunction getCalledFunction(Program program, IntNamedFunction[] resolved, int index)
+            throws EvaluationException {
+
+        // Attempt to retrieve function.
+        String identifier = program.getIdentifiers()[program.getOperand(index)];
+        int arity = program.getArity(index);
+        IntNamedFunction func = resolved[program.getOperand(index)];
+        if (func == null) {
+            throw new EvaluationException("Unknown function " + identifier, program.getLine(index),
+                    program.getColumn(index));
+        }
+
+        // Check function arity.
+        if (func.getArity() != arity) {
+            throw new EvaluationException("Arity incorrect for call to  function " + identifier + ". " +
+                    func.getArity() + " arguments required but " + arity + " given", program.getLine(index),
+                    program.getColumn(index));
+        }
+        return func;
+    }
+
+    /**
+     * Runs a contiguous range of {@link Program} instructions making up a single expression on a stack machine.
+     *
+     * @param program               the program
+     * @param resolved              the functions corresponding to each identifier, null where unknown
+     * @param from                  the index of the first instruction to run, inclusive
+     * @param to                    the index of the last instruction to run, exclusive
+     * @param stack                 the operand stack to use, large enough for the program
+     * @return                      the result of evaluation
+     * @throws EvaluationException  if the program calls an unknown function or calls a function with the wrong arity
+     */
+    private static int run(Program program, IntNamedFunction[] resolved, int from, int to, int[] stack)
+            throws EvaluationException {
+        int[][] argumentBuffers = new int[0][];
+        int stackSize = 0;
+        for (int i = from; i < to; i++) {
+            switch (program.getOpcode(i)) {
+                case Program.PUSH:
+                    stack[stackSize++] = program.getOperand(i); // An atom evaluates to itself (its own value).
+                    break;
+                case Program.CALL:
+                    IntNamedFunction func = getCalledFunction(program, resolved, i);
+
+                    // Pop arguments into a reused buffer, apply function and push result.
+                    int arity = program.getArity(i);
+                    if (arity >= argumentBuffers.length) {
+                        argumentBuffers = Arrays.copyOf(argumentBuffers, arity + 1);
+                    }
+                    int[] evaluatedArgs = argumentBuffers[arity];
+                    if (evaluatedArgs == null) {
+                        evaluatedArgs = argumentBuffers[arity] = new int[arity];
+                    }
+                    stackSize -= arity;
+                    System.arraycopy(stack, stackSize, evaluatedArgs, 0, arity);
+                    stack[stackSize++] = func.applyAsInt(evaluatedArgs);
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Evaluates a flat {@link Program} on a stack machine.
+     *
+     * Evaluation is iterative, using an explicit operand stack sized up front, so the depth to which calls may be
+     * nested is bounded only by available memory. Function identifiers are resolved once per evaluation and argument
+     * arrays are reused between calls of the same arity, so functions must not hold on to the arrays they are passed.
+     *
+     * @param program               the program to evaluate
+     * @return                      the result of evaluation
+     * @throws EvaluationException  if the program calls an unknown function or calls a function with the wrong arity
+     */
+    public int evaluate(Program program) throws EvaluationException {
+        IntNamedFunction[] resolved = resolveFunctions(program);
+        Profiler.PhaseTimer timer = startEvaluation(program);
+        try {
+            return run(program, resolved, 0, program.size(), new int[program.getMaxStackDepth()]);
+        } finally {
+            if (timer != null) {
+                timer.stop();
+            }
+        }
+    }
+
+    /**
+     * Evaluates a flat {@link Program}, splitting the evaluation of expensive arguments between the threads of a
+     * fork-join pool.
+     *
+     * Arguments are only evaluated as separate tasks if their estimated cost reaches the parallel threshold, and only
+     * where a call has more than one such argument to run side by side. The result is the same as for sequential
+     * evaluation, as is the exception raised if evaluation fails: the first error in source order is always the one
+     * reported. Functions called must be safe to call from several threads at once.
+     *
+     * @param program               the program to evaluate
+     * @param pool                  the pool to evaluate on
+     * @return                      the result of evaluation
+     * @throws EvaluationException  if the program calls an unknown function or calls a function with the wrong arity
+     */
+    public int evaluate(Program program, ForkJoinPool pool) throws EvaluationException {
+        IntNamedFunction[] resolved = resolveFunctions(program);
+        Profiler.PhaseTimer timer = startEvaluation(program);
+
+        // Find where each expression starts and total up estimated costs.
+        int size = program.size();
+        int[] starts = new int[size];
+        long[] costs = new long[size + 1];
+        int[] stack = new int[program.getMaxStackDepth()];
+        int stackSize = 0;
+        for (int i = 0; i < size; i++) {
+            long cost = 1;
+            starts[i] = i;
+            if (program.getOpcode(i) == Program.CALL) {
+                int arity = program.getArity(i);
+                stackSize -= arity;
+                if (arity > 0) {
+                    starts[i] = stack[stackSize]; // Expression starts where its first argument does.
+                }
+                IntNamedFunction function = resolved[program.getOperand(i)];
+                cost += function == null ? 0 : Math.max(function.getCost(), 0);
+            }
+            stack[stackSize++] = starts[i];
+            costs[i + 1] = costs[i] + cost;
+        }
+
+        // Evaluate whole program as a single task.
+        EvaluationTask task = new EvaluationTask(program, resolved, starts, costs, parallelThreshold, size - 1);
+        pool.invoke(task);
+        if (timer != null) {
+            timer.stop();
+        }
+        if (task.failure != null) {
+            rethrow(task.failure);
+        }
+        return task.value;
+    }
+
+    /**
+     * Gets a method handle that applies a function to its arguments, taking one int per argument and returning an int.
+     *
+     * The handle calls the public entry point for the function's arity, or for arities without one, collects arguments
+     * into an array for {@link IntNamedFunction#applyAsInt(int[])}.
+     *
+     * @param function  the function
+     * @return          the method handle
+     */
+    private static MethodHandle getFunctionHandle(IntNamedFunction function) {
+        int arity = function.getArity();
+        Class<?>[] parameterTypes = new Class<?>[arity];
+        Arrays.fill(parameterTypes, int.class);
+        MethodType type = MethodType.methodType(int.class, parameterTypes);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            if (arity <= IntNamedFunction.MAX_SPECIALIZED_ARITY) {
+                return lookup.findVirtual(IntNamedFunction.class, "apply" + arity, type).bindTo(function);
+            }
+            return lookup.findVirtual(IntNamedFunction.class, "applyAsInt",
+                    MethodType.methodType(int.class, int[].class))
+                    .bindTo(function)
+                    .asCollector(int[].class, arity);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e); // Should never be triggered, the methods are public API.
+        }
+    }
+
+    /**
+     * Compiles an {@link Expression} to a method handle taking no arguments and returning an int.
+     *
+     * @param expression            the expression to compile
+     * @return                      the compiled method handle
+     * @throws EvaluationException  if the expression calls an unknown function or calls a function with the wrong arity
+     */
+    private MethodHandle compileHandle(Expression expression) throws EvaluationException {
+
+        // Is this an atomic value or a call?
+        switch (expression.getType()) {
+            case ATOM:
+                Atom atom = (Atom) expression;
+                return MethodHandles.constant(int.class, atom.getValue()); // An atom compiles to its own value.
+            case CALL:
+                // Call encountered.
+                Call call = (Call) expression;
+
+                // Compile subexpressions first, so errors are raised in the same order as during evaluation.
+                Expression[] args = call.getExpressions();
+                int arity = args.length;
+                MethodHandle[] compiledArgs = new MethodHandle[arity];
+                for (int i = 0; i < arity; i++) {
+                    compiledArgs[i] = compileHandle(args[i]);
+                }
+
+                // Attempt to retrieve function.
+                Token functionNameToken = call.getToken();
+                String functionName = call.getIdentifier();
+                IntNamedFunction func = getFunction(functionName);
+                if (func == null) {
+                    throw new EvaluationException("Unknown function " + call.getIdentifier(),
+                            functionNameToken.getLine(), functionNameToken.getColumn());
+                }
+
+                // Check function arity.
+                if (func.getArity() != arity) {
+                    throw new EvaluationException("Arity incorrect for call to  function " + call.getIdentifier() +
+                            ". " + func.getArity() + " arguments required but " + arity + " given",
+                            functionNameToken.getLine(), functionNameToken.getColumn());
+                }
+
+                // Feed each compiled argument into the function, last first so that argument positions stay put.
+                MethodHandle handle = getFunctionHandle(func);
+                for (int i = arity - 1; i >= 0; i--) {
+                    handle = MethodHandles.collectArguments(handle, i, compiledArgs[i]);
+                }
+                return handle;
+        }
+
+        // Check we have a source code location.
+        if (expression.getToken() != null) {
+            // Expression type not known, but we have a source code location.
+            throw new EvaluationException("Unknown expression",
+                    expression.getToken().getLine(), expression.getToken().getColumn());
+        } else {
+            throw new EvaluationException("Unknown expression", 0, 0); // No token, no idea what happened.
+        }
+    }
+
+    /**
+     * Compiles an {@link Expression} against the functions currently added to this evaluator, so that it can be run
+     * many times without repeating function lookups or arity checks.
+     *
+     * @param expression            the expression to compile
+     * @return                      the compiled expression
+     * @throws EvaluationException  if the expression calls an unknown function or calls a function with the wrong arity
+     */
+    public CompiledExpression compile(Expression expression) throws EvaluationException {
+        return new CompiledExpression(expression, compileHandle(expression));
+    }
 }
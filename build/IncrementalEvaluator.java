@@ -0,0 +1,618 @@
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Represents a service that re-evaluates successive versions of a program, reusing as much work from the previous
+ * version as possible.
+ *
+ * Each new version is compared against the last to find the region that changed. Only the innermost call whose
+ * parentheses enclose that region is re-tokenized and reparsed, as text outside it must tokenize exactly as before.
+ * Expression structure is hash-consed, so identical subexpressions share a single node that remembers its value once
+ * evaluated. Splicing in the reparsed call therefore only creates new nodes on the path from it up to the root, and
+ * only those are evaluated afresh. Calls to impure functions are never remembered.
+ *
+ * Where a change cannot be handled locally (it touches the outermost parentheses, say, or unbalances them) the whole
+ * program is processed from scratch instead. Results and errors are always the same as for evaluating the program with
+ * the underlying {@link Evaluator}.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class IncrementalEvaluator {
+
+    /**
+     * Represents the structure of an expression, shared between every identical occurrence of it.
+     */
+    private static class Shape {
+
+        private String identifier;
+
+        private Shape[] children;
+
+        private int hash;
+
+        private int value;
+
+        private boolean evaluated;
+
+        /**
+         * Initialises a new instance of the structure of an atom, whose value is known from the outset.
+         *
+         * @param value the atom value
+         */
+        private Shape(int value) {
+            children = new Shape[0];
+            hash = value * 0x9E3779B9;
+            this.value = value;
+            evaluated = true;
+        }
+
+        /**
+         * Initialises a new instance of the structure of a call, whose value is not yet known.
+         *
+         * @param identifier    the function identifier
+         * @param children      the structures of the arguments, each already shared
+         */
+        private Shape(String identifier, Shape[] children) {
+            this.identifier = identifier;
+            this.children = children;
+            hash = identifier.hashCode();
+            for (Shape child : children) {
+                hash = hash * 31 + child.hash;
+            }
+            evaluated = false;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Shape)) {
+                return false;
+            }
+            Shape other = (Shape) obj;
+            if (hash != other.hash || children.length != other.children.length) {
+                return false;
+            }
+            if (identifier == null) {
+                return other.identifier == null && value == other.value;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != other.children[i]) {
+                    return false; // Children are shared, so identical structures are the very same objects.
+                }
+            }
+            return identifier.equals(other.identifier);
+        }
+
+        /**
+         * @inheritDoc
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Represents a single occurrence of a call in the source, positioned relative to the call enclosing it so that
+     * edits only ever shift the positions of calls on the path up to the root and their later siblings.
+     */
+    private static class Node {
+
+        private int offset;
+
+        private int length;
+
+        private int argument;
+
+        private int index;
+
+        private int size;
+
+        private Shape shape;
+
+        private Node parent;
+
+        private Node[] calls;
+    }
+
+    /**
+     * Represents a call being built up by the parser, or being evaluated.
+     */
+    private static class Frame {
+
+        private Node node;
+
+        private String identifier;
+
+        private List<Shape> args;
+
+        private List<Node> calls;
+
+        private Shape shape;
+
+        private int[] values;
+
+        private int child;
+
+        private boolean pure;
+    }
+
+    /**
+     * Represents a call found in the source, along with its absolute offset.
+     */
+    private static class Location {
+
+        private Node node;
+
+        private int start;
+
+        /**
+         * Initialises a new instance of a call location.
+         *
+         * @param node  the call
+         * @param start the absolute offset of the call
+         */
+        private Location(Node node, int start) {
+            this.node = node;
+            this.start = start;
+        }
+    }
+
+    private Evaluator evaluator;
+
+    private Map<Shape, WeakReference<Shape>> shapes;
+
+    private String source;
+
+    private Node root;
+
+    private Shape rootShape;
+
+    private boolean incremental;
+
+    private int relexedCharacters;
+
+    private int reparsedNodes;
+
+    private int evaluatedCalls;
+
+    private int reusedResults;
+
+    /**
+     * Initialises a new instance of an incremental evaluator.
+     *
+     * @param evaluator the evaluator to look functions up in
+     */
+    public IncrementalEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        shapes = new WeakHashMap<Shape, WeakReference<Shape>>();
+        source = null;
+        root = null;
+        rootShape = null;
+    }
+
+    /**
+     * Returns the shared instance of a structure, making it the shared instance if there is none.
+     *
+     * @param shape the structure
+     * @return      the shared instance
+     */
+    private Shape intern(Shape shape) {
+        WeakReference<Shape> reference = shapes.get(shape);
+        Shape existing = reference == null ? null : reference.get();
+        if (existing != null) {
+            return existing;
+        }
+        shapes.put(shape, new WeakReference<Shape>(shape));
+        return shape;
+    }
+
+    /**
+     * Finds the offset at which each line of some text starts.
+     *
+     * @param text  the text
+     * @return      the offset of the start of each line
+     */
+    private static int[] lineStarts(String text) {
+        int[] starts = new int[16];
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                if (lines == starts.length) {
+                    starts = Arrays.copyOf(starts, lines * 2);
+                }
+                starts[lines++] = i + 1;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Builds the structure of a call from tokens already known to parse as a single call.
+     *
+     * @param tokens    the tokens
+     * @param text      the text the tokens were read from
+     * @param base      the offset of that text in the whole program
+     * @return          the outermost call
+     */
+    private Node build(Token[] tokens, String text, int base) {
+        int[] lineStarts = lineStarts(text);
+        Deque<Frame> open = new ArrayDeque<Frame>();
+        for (int i = 0; ; i++) {
+            Token token = tokens[i];
+            int offset = base + lineStarts[token.getLine() - 1] + token.getColumn() - 1;
+            switch (token.getType()) {
+                case OPEN_PARENTHESIS:
+                    Frame frame = new Frame();
+                    frame.node = new Node();
+                    frame.node.offset = offset; // Absolute until the enclosing call is closed.
+                    frame.node.size = 1;
+                    frame.identifier = tokens[++i].getText();
+                    frame.args = new ArrayList<Shape>();
+                    frame.calls = new ArrayList<Node>();
+                    open.push(frame);
+                    break;
+                case INTEGER:
+                    open.peek().args.add(intern(new Shape(Integer.parseInt(token.getText()))));
+                    open.peek().node.size++;
+                    break;
+                case CLOSE_PARENTHESIS:
+                    Frame closed = open.pop();
+                    Node node = closed.node;
+                    node.length = offset + 1 - node.offset;
+                    node.shape = intern(new Shape(closed.identifier, closed.args.toArray(new Shape[0])));
+                    node.calls = closed.calls.toArray(new Node[0]);
+                    for (Node call : node.calls) {
+                        call.offset -= node.offset;
+                        call.parent = node;
+                    }
+                    if (open.isEmpty()) {
+                        return node;
+                    }
+                    Frame enclosing = open.peek();
+                    node.argument = enclosing.args.size();
+                    node.index = enclosing.calls.size();
+                    enclosing.args.add(node.shape);
+                    enclosing.calls.add(node);
+                    enclosing.node.size += node.size;
+                    break;
+                default:
+                    break; // Identifiers are read along with their opening parenthesis.
+            }
+        }
+    }
+
+    /**
+     * Evaluates a structure, reusing remembered values and remembering those of calls to pure functions.
+     *
+     * @param shape                 the structure to evaluate
+     * @return                      the result of evaluation
+     * @throws EvaluationException  if an unknown function is called or a function is called with the wrong arity
+     */
+    private int evaluate(Shape shape) throws EvaluationException {
+        if (shape.evaluated) {
+            reusedResults += shape.identifier == null ? 0 : 1;
+            return shape.value;
+        }
+
+        // Evaluate depth first with our own stack, looking each function up once.
+        Map<String, IntNamedFunction> functions = new HashMap<String, IntNamedFunction>();
+        Deque<Frame> stack = new ArrayDeque<Frame>();
+        Frame top = new Frame();
+        top.shape = shape;
+        top.values = new int[shape.children.length];
+        top.pure = true;
+        stack.push(top);
+        int result = 0;
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.child < frame.shape.children.length) {
+                Shape child = frame.shape.children[frame.child];
+                if (child.evaluated) {
+                    reusedResults += child.identifier == null ? 0 : 1;
+                    frame.values[frame.child++] = child.value;
+                } else {
+                    Frame next = new Frame();
+                    next.shape = child;
+                    next.values = new int[child.children.length];
+                    next.pure = true;
+                    stack.push(next);
+                }
+                continue;
+            }
+
+            // All arguments known, apply the function.
+            String identifier = frame.shape.identifier;
+            IntNamedFunction function = functions.get(identifier);
+            if (function == null) {
+                function = evaluator.getFunction(identifier);
+                functions.put(identifier, function);
+            }
+            if (function == null || function.getArity() != frame.values.length) {
+                throw new EvaluationException("Cannot call function " + identifier, 0, 0);
+            }
+            int value = function.applyAsInt(frame.values);
+            evaluatedCalls++;
+            if (frame.pure && function.isPure()) {
+                frame.shape.value = value;
+                frame.shape.evaluated = true;
+            }
+
+            // Hand the value to the enclosing call.
+            stack.pop();
+            Frame enclosing = stack.peek();
+            if (enclosing == null) {
+                result = value;
+            } else {
+                enclosing.values[enclosing.child++] = value;
+                enclosing.pure &= frame.shape.evaluated;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Processes a whole program from scratch. If tokenization or parsing fails, the last version that parsed is kept
+     * to compare later versions against.
+     *
+     * @param text                      the program source
+     * @return                          the result of evaluation
+     * @throws TokenizationException    if tokenization fails
+     * @throws ParseException           if parsing fails
+     * @throws EvaluationException      if evaluation fails
+     */
+    private int runFully(String text) throws TokenizationException, ParseException, EvaluationException {
+        incremental = false;
+
+        // Tokenize and parse everything, raising errors exactly as usual.
+        Token[] tokens = new CapriccioTokenizer().tokenize(text);
+        Program program = Program.parse(new TokenStream(tokens));
+        Node newRoot = null;
+        Shape newRootShape;
+        if (tokens[0].getType() == TokenType.OPEN_PARENTHESIS) {
+            newRoot = build(tokens, text, 0);
+            newRootShape = newRoot.shape;
+        } else {
+            newRootShape = intern(new Shape(program.getOperand(0))); // Whole program is a single atom.
+        }
+
+        // Only replace the last good version once this one parses, so the next version is compared against it.
+        source = text;
+        root = newRoot;
+        rootShape = newRootShape;
+        relexedCharacters = text.length();
+        reparsedNodes = program.size();
+        return evaluateRoot(program);
+    }
+
+    /**
+     * Evaluates the whole program, falling back to the underlying evaluator to report any error exactly.
+     *
+     * @param program               the parsed program, or null to parse it from source if needed
+     * @return                      the result of evaluation
+     * @throws EvaluationException  if evaluation fails
+     */
+    private int evaluateRoot(Program program) throws EvaluationException {
+        try {
+            return evaluate(rootShape);
+        } catch (EvaluationException e) {
+            try {
+                if (program == null) {
+                    program = Program.parse(new TokenStream(new CapriccioTokenizer().tokenize(source)));
+                }
+            } catch (TokenizationException | ParseException f) {
+                throw e; // Should never be triggered, the source has already been parsed.
+            }
+            evaluator.evaluate(program); // Raises the error with its source position.
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the innermost call whose parentheses strictly enclose a region of the source.
+     *
+     * @param from  the start of the region, inclusive
+     * @param to    the end of the region, exclusive
+     * @return      the location of the call, or null if no call encloses the region
+     */
+    private Location findEnclosingCall(int from, int to) {
+        if (root == null || root.offset >= from || to > root.offset + root.length - 1) {
+            return null;
+        }
+        Node node = root;
+        int start = root.offset;
+        while (true) {
+
+            // Find the last call starting before the region, and see if it encloses it.
+            Node[] calls = node.calls;
+            int low = 0;
+            int high = calls.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (start + calls[middle].offset < from) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (found == -1 || to > start + calls[found].offset + calls[found].length - 1) {
+                return new Location(node, start);
+            }
+            node = calls[found];
+            start += node.offset;
+        }
+    }
+
+    /**
+     * Evaluates a new version of the program. After the first version, only the parts affected by changes since the
+     * previous version are re-tokenized, reparsed and re-evaluated, wherever possible.
+     *
+     * @param text                      the program source
+     * @return                          the result of evaluation
+     * @throws TokenizationException    if tokenization fails
+     * @throws ParseException           if parsing fails
+     * @throws EvaluationException      if evaluation fails
+     */
+    public int update(String text) throws TokenizationException, ParseException, EvaluationException {
+        incremental = true;
+        relexedCharacters = 0;
+        reparsedNodes = 0;
+        evaluatedCalls = 0;
+        reusedResults = 0;
+        if (source == null || rootShape == null) {
+            return runFully(text);
+        }
+
+        // Find the region that changed.
+        int limit = Math.min(source.length(), text.length());
+        int prefix = 0;
+        while (prefix < limit && source.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && source.charAt(source.length() - 1 - suffix) == text.charAt(text.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (prefix == source.length() && prefix == text.length()) {
+            source = text;
+            return evaluateRoot(null); // Nothing changed.
+        }
+
+        // Only a call strictly enclosing the change can be reparsed on its own.
+        Location enclosing = findEnclosingCall(prefix, source.length() - suffix);
+        if (enclosing == null) {
+            return runFully(text);
+        }
+        Node node = enclosing.node;
+        int start = enclosing.start;
+        int delta = text.length() - source.length();
+        String span = text.substring(start, start + node.length + delta);
+
+        // The span must still be exactly one call, ending in a closing parenthesis.
+        Node replacement;
+        try {
+            Token[] tokens = new CapriccioTokenizer().tokenize(span);
+            TokenStream tokenStream = new TokenStream(tokens);
+            Program.parse(tokenStream);
+            Token last = tokens[tokens.length - 1];
+            if (!tokenStream.isTerminal() || last.getType() != TokenType.CLOSE_PARENTHESIS
+                    || span.charAt(span.length() - 1) != ')'
+                    || lineStarts(span)[last.getLine() - 1] + last.getColumn() != span.length()) {
+                return runFully(text);
+            }
+            replacement = build(tokens, span, 0);
+        } catch (TokenizationException | ParseException e) {
+            return runFully(text); // Raises the error with its source position in the whole program.
+        }
+        relexedCharacters = span.length();
+        reparsedNodes = replacement.size;
+
+        // Splice in the replacement, then share out new structure and positions up to the root.
+        Node parent = node.parent;
+        replacement.offset = node.offset;
+        replacement.argument = node.argument;
+        replacement.index = node.index;
+        replacement.parent = parent;
+        int sizeDelta = replacement.size - node.size;
+        Node child = replacement;
+        if (parent == null) {
+            root = replacement;
+        }
+        while (parent != null) {
+            parent.calls[child.index] = child;
+            for (int i = child.index + 1; i < parent.calls.length; i++) {
+                parent.calls[i].offset += delta;
+            }
+            parent.length += delta;
+            parent.size += sizeDelta;
+            Shape[] children = parent.shape.children.clone();
+            children[child.argument] = child.shape;
+            parent.shape = intern(new Shape(parent.shape.identifier, children));
+            child = parent;
+            parent = parent.parent;
+        }
+        source = text;
+        rootShape = root.shape;
+        return evaluateRoot(null);
+    }
+
+    /**
+     * Gets whether or not the last version was processed incrementally, rather than from scratch.
+     *
+     * @return  true if the last version was processed incrementally, otherwise false
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Gets the number of characters re-tokenized for the last version.
+     *
+     * @return  the number of characters
+     */
+    public int getRelexedCharacters() {
+        return relexedCharacters;
+    }
+
+    /**
+     * Gets the number of atoms and calls reparsed for the last version.
+     *
+     * @return  the number of nodes
+     */
+    public int getReparsedNodes() {
+        return reparsedNodes;
+    }
+
+    /**
+     * Gets the number of atoms and calls in the last version.
+     *
+     * @return  the number of nodes
+     */
+    public int getNodeCount() {
+        return root == null ? (rootShape == null ? 0 : 1) : root.size;
+    }
+
+    /**
+     * Gets the number of function calls made evaluating the last version.
+     *
+     * @return  the number of calls
+     */
+    public int getEvaluatedCalls() {
+        return evaluatedCalls;
+    }
+
+    /**
+     * Gets the number of remembered call results reused evaluating the last version.
+     *
+     * @return  the number of results
+     */
+    public int getReusedResults() {
+        return reusedResults;
+    }
+
+    /**
+     * Describes how much work was done for the last version, and how much was reused.
+     *
+     * @return  the description
+     */
+    public String describeLastRun() {
+        int length = source == null ? 0 : source.length();
+        return (incremental ? "Incremental" : "Full") + " run: re-lexed " + relexedCharacters + " of " + length +
+                " characters, reparsed " + reparsedNodes + " of " + getNodeCount() + " nodes, evaluated " +
+                evaluatedCalls + " calls, reused " + reusedResults + " results.";
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Represents a named function over primitive ints, tagged with its arity.
+ *
+ * Functions implementing this interface are called without boxing their result. Calls of arity up to
+ * {@link #MAX_SPECIALIZED_ARITY} go through an entry point taking each argument separately, so no argument array need
+ * be allocated either. Implementations should override the entry point matching their arity; by default each one falls
+ * back to {@link #applyAsInt(int[])}.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public interface IntNamedFunction extends NamedFunction<int[], Integer> {
+
+    /**
+     * The highest arity for which there is an entry point taking each argument separately.
+     */
+    int MAX_SPECIALIZED_ARITY = 4;
+
+    /**
+     * Returns the given function as a function over primitive ints, adapting it if it is not one already.
+     *
+     * @param function  the function
+     * @return          the function over primitive ints
+     */
+    static IntNamedFunction of(NamedFunction<int[], Integer> function) {
+        if (function instanceof IntNamedFunction) {
+            return (IntNamedFunction) function;
+        }
+        return new NamedFunctionAdapter(function);
+    }
+
+    /**
+     * Applies the function to an array of arguments. The array must not be held on to, as callers may reuse it.
+     *
+     * @param args  the arguments
+     * @return      the result
+     */
+    int applyAsInt(int[] args);
+
+    /**
+     * @inheritDoc
+     */
+    default Integer apply(int[] args) {
+        return applyAsInt(args);
+    }
+
+    /**
+     * Applies the function to no arguments.
+     *
+     * @return  the result
+     */
+    default int apply0() {
+        return applyAsInt(new int[0]);
+    }
+
+    /**
+     * Applies the function to one argument.
+     *
+     * @param arg0  the first argument
+     * @return      the result
+     */
+    default int apply1(int arg0) {
+        return applyAsInt(new int[] {arg0});
+    }
+
+    /**
+     * Applies the function to two arguments.
+     *
+     * @param arg0  the first argument
+     * @param arg1  the second argument
+     * @return      the result
+     */
+    default int apply2(int arg0, int arg1) {
+        return applyAsInt(new int[] {arg0, arg1});
+    }
+
+    /**
+     * Applies the function to three arguments.
+     *
+     * @param arg0  the first argument
+     * @param arg1  the second argument
+     * @param arg2  the third argument
+     * @return      the result
+     */
+    default int apply3(int arg0, int arg1, int arg2) {
+        return applyAsInt(new int[] {arg0, arg1, arg2});
+    }
+
+    /**
+     * Applies the function to four arguments.
+     *
+     * @param arg0  the first argument
+     * @param arg1  the second argument
+     * @param arg2  the third argument
+     * @param arg3  the fourth argument
+     * @return      the result
+     */
+    default int apply4(int arg0, int arg1, int arg2, int arg3) {
+        return applyAsInt(new int[] {arg0, arg1, arg2, arg3});
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents a thread-safe histogram of latencies in nanoseconds with bounded relative error.
+ *
+ * Values are counted in log-linear buckets, as in HdrHistogram: each power of two range is split into
+ * {@link #SUB_BUCKETS} / 2 equal sub-buckets, so any value is recorded to within about 1.6% of its true size using a
+ * fixed-size array of counts. Recording a value is a handful of arithmetic operations and an atomic increment, with no
+ * allocation.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class LatencyHistogram {
+
+    /**
+     * The number of bits of precision kept for each value.
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    /**
+     * The number of sub-buckets values below the first power of two range are counted in.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of sub-buckets each power of two range above that is split into.
+     */
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+    private final AtomicLongArray counts;
+
+    private final LongAdder count;
+
+    private final LongAdder total;
+
+    private final LongAccumulator max;
+
+    /**
+     * Initialises a new, empty latency histogram.
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS + 2) * HALF_SUB_BUCKETS);
+        count = new LongAdder();
+        total = new LongAdder();
+        max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Gets the index of the count a value is recorded in.
+     *
+     * @param value the value, not negative
+     * @return      the index
+     */
+    private static int indexOf(long value) {
+        int bucket = Long.SIZE - Long.numberOfLeadingZeros(value >>> SUB_BUCKET_BITS);
+        return bucket * HALF_SUB_BUCKETS + (int) (value >>> bucket);
+    }
+
+    /**
+     * Gets the highest value recorded in the same count as the count at an index.
+     *
+     * @param index the index
+     * @return      the highest value
+     */
+    private static long highestValueAt(int index) {
+        int bucket = index < SUB_BUCKETS ? 0 : (index >> (SUB_BUCKET_BITS - 1)) - 1;
+        long subBucket = index - bucket * HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds, clamped to zero if negative
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Gets the number of latencies recorded.
+     *
+     * @return  the count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the sum of all latencies recorded.
+     *
+     * @return  the sum in nanoseconds
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Gets the mean latency recorded.
+     *
+     * @return  the mean in nanoseconds, or zero if nothing has been recorded
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotal() / (double) count;
+    }
+
+    /**
+     * Gets the highest latency recorded, exactly.
+     *
+     * @return  the highest latency in nanoseconds, or zero if nothing has been recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the latency at or below which a given percentage of recorded latencies fall.
+     *
+     * @param percentile    the percentage, between 0 and 100
+     * @return              the latency in nanoseconds, or zero if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        long target = Math.max((long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), getMax()); // Never report beyond what was seen.
+            }
+        }
+        return 0;
+    }
+}
@@ -23,4 +23,24 @@ public interface NamedFunction<T, R> extends Function<T, R> {
      * @return the function arity
      */
     int getArity();
+
+    /**
+     * Gets whether or not the function is pure, always returning the same result for the same arguments and having no
+     * side effects. Results of pure functions may be cached or computed ahead of time.
+     *
+     * @return true if the function is pure, otherwise false
+     */
+    default boolean isPure() {
+        return false;
+    }
+
+    /**
+     * Gets an estimate of the cost of calling the function, relative to a single step of evaluation. This is used to
+     * decide whether or not evaluation is worth splitting between threads.
+     *
+     * @return the estimated cost
+     */
+    default int getCost() {
+        return 1;
+    }
 }
@@ -0,0 +1,74 @@
+/**
+ * Represents a generic {@link NamedFunction} adapted to be called as an {@link IntNamedFunction}.
+ *
+ * This keeps functions written against the generic interface usable by the evaluator. Their results are still boxed
+ * and unboxed on every call, so functions that are called often should implement {@link IntNamedFunction} directly.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class NamedFunctionAdapter implements IntNamedFunction {
+
+    private NamedFunction<int[], Integer> function;
+
+    /**
+     * Initialises a new instance of an adapter for a generic function.
+     *
+     * @param function  the function to adapt
+     */
+    public NamedFunctionAdapter(NamedFunction<int[], Integer> function) {
+        this.function = function;
+    }
+
+    /**
+     * Gets the function adapted.
+     *
+     * @return  the function
+     */
+    public NamedFunction<int[], Integer> getFunction() {
+        return function;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int applyAsInt(int[] args) {
+        return function.apply(args);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Integer apply(int[] args) {
+        return function.apply(args); // Skip the round trip through an int.
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public String getName() {
+        return function.getName();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getArity() {
+        return function.getArity();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public boolean isPure() {
+        return function.isPure();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getCost() {
+        return function.getCost();
+    }
+}
@@ -0,0 +1,531 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Represents a collector of profiling data for interpreter runs.
+ *
+ * A profiler records the wall time spent in each phase of interpretation, the number of tokens and nodes processed,
+ * the deepest nesting reached during evaluation and, for each function called, the number of calls made along with a
+ * histogram of their latencies. Collected data can be reported as text or JSON, or committed as JDK Flight Recorder
+ * events. Phases are also committed as flight recorder events as they end.
+ *
+ * Nothing is recorded unless a profiler is in use: evaluators only instrument functions when given a profiler, so
+ * evaluation without one pays nothing for it. Profilers are thread-safe, and accumulate data over every run they are
+ * used for.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class Profiler {
+
+    /**
+     * Represents a phase of interpretation.
+     */
+    public enum Phase {
+
+        /**
+         * Splitting source into tokens.
+         */
+        TOKENIZE,
+
+        /**
+         * Building a program or expression from tokens.
+         */
+        PARSE,
+
+        /**
+         * Looking up the functions a program calls.
+         */
+        RESOLVE,
+
+        /**
+         * Evaluating a program.
+         */
+        EVALUATE;
+
+        /**
+         * Gets the name of the phase as shown in reports.
+         *
+         * @return  the name
+         */
+        public String getLabel() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Represents a flight recorder event for a single phase of interpretation.
+     */
+    @Name("capriccio.Phase")
+    @Label("Interpreter Phase")
+    @Category("Capriccio")
+    @Description("A single phase of interpreting a program.")
+    static class PhaseEvent extends Event {
+
+        @Label("Phase")
+        String phase;
+    }
+
+    /**
+     * Represents a flight recorder event summarising the programs profiled.
+     */
+    @Name("capriccio.ProgramProfile")
+    @Label("Program Profile")
+    @Category("Capriccio")
+    @Description("Totals for the programs interpreted while profiling.")
+    static class ProgramProfileEvent extends Event {
+
+        @Label("Tokens")
+        long tokens;
+
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Maximum Depth")
+        long maxDepth;
+    }
+
+    /**
+     * Represents a flight recorder event summarising the calls made to a single function.
+     */
+    @Name("capriccio.FunctionProfile")
+    @Label("Function Profile")
+    @Category("Capriccio")
+    @Description("Call count and latency distribution for a single function.")
+    static class FunctionProfileEvent extends Event {
+
+        @Label("Function")
+        String function;
+
+        @Label("Calls")
+        long calls;
+
+        @Label("Total Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long total;
+
+        @Label("Median Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long p50;
+
+        @Label("99th Percentile Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long p99;
+
+        @Label("Maximum Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long max;
+    }
+
+    /**
+     * Represents a phase of interpretation in progress.
+     */
+    public class PhaseTimer {
+
+        private Phase phase;
+
+        private PhaseEvent event;
+
+        private long start;
+
+        /**
+         * Initialises and starts a new phase timer.
+         *
+         * @param phase the phase being timed
+         */
+        private PhaseTimer(Phase phase) {
+            this.phase = phase;
+            event = new PhaseEvent();
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        /**
+         * Stops timing the phase, adding the time taken to its total.
+         */
+        public void stop() {
+            phaseNanos[phase.ordinal()].add(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.getLabel();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Represents a function whose calls are counted and timed by this profiler.
+     */
+    private class ProfiledFunction implements IntNamedFunction {
+
+        private IntNamedFunction function;
+
+        private LatencyHistogram histogram;
+
+        /**
+         * Initialises a new instance of a profiled function.
+         *
+         * @param function  the function to profile
+         */
+        private ProfiledFunction(IntNamedFunction function) {
+            this.function = function;
+            histogram = histograms.computeIfAbsent(function.getName(), name -> new LatencyHistogram());
+        }
+
+        /**
+         * Gets the profiler this function is profiled by.
+         *
+         * @return  the profiler
+         */
+        private Profiler getProfiler() {
+            return Profiler.this;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int applyAsInt(int[] args) {
+            long start = System.nanoTime();
+            int result = function.applyAsInt(args);
+            histogram.record(System.nanoTime() - start);
+            return result;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int apply0() {
+            long start = System.nanoTime();
+            int result = function.apply0();
+            histogram.record(System.nanoTime() - start);
+            return result;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int apply1(int arg0) {
+            long start = System.nanoTime();
+            int result = function.apply1(arg0);
+            histogram.record(System.nanoTime() - start);
+            return result;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int apply2(int arg0, int arg1) {
+            long start = System.nanoTime();
+            int result = function.apply2(arg0, arg1);
+            histogram.record(System.nanoTime() - start);
+            return result;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int apply3(int arg0, int arg1, int arg2) {
+            long start = System.nanoTime();
+            int result = function.apply3(arg0, arg1, arg2);
+            histogram.record(System.nanoTime() - start);
+            return result;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int apply4(int arg0, int arg1, int arg2, int arg3) {
+            long start = System.nanoTime();
+            int result = function.apply4(arg0, arg1, arg2, arg3);
+            histogram.record(System.nanoTime() - start);
+            return result;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public String getName() {
+            return function.getName();
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int getArity() {
+            return function.getArity();
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public boolean isPure() {
+            return function.isPure();
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int getCost() {
+            return function.getCost();
+        }
+    }
+
+    private final LongAdder[] phaseNanos;
+
+    private final LongAdder tokens;
+
+    private final LongAdder nodes;
+
+    private final LongAccumulator maxDepth;
+
+    private final Map<String, LatencyHistogram> histograms;
+
+    private final Map<NamedFunction<int[], Integer>, IntNamedFunction> instrumented;
+
+    /**
+     * Initialises a new instance of a profiler with nothing recorded.
+     */
+    public Profiler() {
+        phaseNanos = new LongAdder[Phase.values().length];
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+        tokens = new LongAdder();
+        nodes = new LongAdder();
+        maxDepth = new LongAccumulator(Math::max, 0);
+        histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+        instrumented = new ConcurrentHashMap<NamedFunction<int[], Integer>, IntNamedFunction>();
+    }
+
+    /**
+     * Starts timing a phase of interpretation.
+     *
+     * @param phase the phase
+     * @return      the timer, to be stopped when the phase ends
+     */
+    public PhaseTimer startPhase(Phase phase) {
+        return new PhaseTimer(phase);
+    }
+
+    /**
+     * Adds to the number of tokens processed.
+     *
+     * @param count the number of tokens
+     */
+    public void addTokens(long count) {
+        tokens.add(count);
+    }
+
+    /**
+     * Adds to the number of nodes processed.
+     *
+     * @param count the number of nodes
+     */
+    public void addNodes(long count) {
+        nodes.add(count);
+    }
+
+    /**
+     * Records the depth reached during evaluation, keeping the deepest seen.
+     *
+     * @param depth the depth
+     */
+    public void recordDepth(int depth) {
+        maxDepth.accumulate(depth);
+    }
+
+    /**
+     * Returns a function whose calls are counted and timed by this profiler. Instrumenting the same function twice
+     * returns the same wrapper.
+     *
+     * @param function  the function to instrument
+     * @return          the instrumented function
+     */
+    public IntNamedFunction instrument(NamedFunction<int[], Integer> function) {
+        if (function instanceof ProfiledFunction && ((ProfiledFunction) function).getProfiler() == this) {
+            return (ProfiledFunction) function; // Already instrumented by this profiler.
+        }
+        return instrumented.computeIfAbsent(function, key -> new ProfiledFunction(IntNamedFunction.of(key)));
+    }
+
+    /**
+     * Gets the total wall time spent in a phase.
+     *
+     * @param phase the phase
+     * @return      the time in nanoseconds
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * Gets the number of tokens processed.
+     *
+     * @return  the token count
+     */
+    public long getTokenCount() {
+        return tokens.sum();
+    }
+
+    /**
+     * Gets the number of nodes processed.
+     *
+     * @return  the node count
+     */
+    public long getNodeCount() {
+        return nodes.sum();
+    }
+
+    /**
+     * Gets the deepest nesting reached during evaluation.
+     *
+     * @return  the depth
+     */
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * Gets the histogram of call latencies for a function.
+     *
+     * @param name  the function name
+     * @return      the histogram, or null if the function has not been instrumented
+     */
+    public LatencyHistogram getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * Gets the names of all functions instrumented, those taking the most time in total first.
+     *
+     * @return  the function names
+     */
+    public List<String> getFunctionNames() {
+        List<String> names = new ArrayList<String>(histograms.keySet());
+        names.sort(Comparator.comparingLong((String name) -> histograms.get(name).getTotal()).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return names;
+    }
+
+    /**
+     * Commits flight recorder events summarising everything recorded so far.
+     */
+    public void commitEvents() {
+        ProgramProfileEvent programEvent = new ProgramProfileEvent();
+        if (programEvent.shouldCommit()) {
+            programEvent.tokens = getTokenCount();
+            programEvent.nodes = getNodeCount();
+            programEvent.maxDepth = getMaxDepth();
+            programEvent.commit();
+        }
+        for (String name : getFunctionNames()) {
+            FunctionProfileEvent functionEvent = new FunctionProfileEvent();
+            if (functionEvent.shouldCommit()) {
+                LatencyHistogram histogram = histograms.get(name);
+                functionEvent.function = name;
+                functionEvent.calls = histogram.getCount();
+                functionEvent.total = histogram.getTotal();
+                functionEvent.p50 = histogram.getValueAtPercentile(50);
+                functionEvent.p99 = histogram.getValueAtPercentile(99);
+                functionEvent.max = histogram.getMax();
+                functionEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * Escapes a string for inclusion in JSON.
+     *
+     * @param text  the string
+     * @return      the escaped string, in quotes
+     */
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character == '"' || character == '\\') {
+                quoted.append('\\').append(character);
+            } else if (character < ' ') {
+                quoted.append(String.format("\\u%04x", (int) character));
+            } else {
+                quoted.append(character);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Reports everything recorded so far as a JSON object. Times are given in nanoseconds.
+     *
+     * @return  the report
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"phases\":{");
+        for (Phase phase : Phase.values()) {
+            json.append(phase.ordinal() == 0 ? "" : ",").append(quote(phase.getLabel())).append(':')
+                    .append(getPhaseNanos(phase));
+        }
+        json.append("},\"tokens\":").append(getTokenCount())
+                .append(",\"nodes\":").append(getNodeCount())
+                .append(",\"maxDepth\":").append(getMaxDepth())
+                .append(",\"functions\":[");
+        boolean first = true;
+        for (String name : getFunctionNames()) {
+            LatencyHistogram histogram = histograms.get(name);
+            json.append(first ? "" : ",")
+                    .append("{\"name\":").append(quote(name))
+                    .append(",\"calls\":").append(histogram.getCount())
+                    .append(",\"total\":").append(histogram.getTotal())
+                    .append(",\"mean\":").append(Math.round(histogram.getMean()))
+                    .append(",\"p50\":").append(histogram.getValueAtPercentile(50))
+                    .append(",\"p90\":").append(histogram.getValueAtPercentile(90))
+                    .append(",\"p99\":").append(histogram.getValueAtPercentile(99))
+                    .append(",\"max\":").append(histogram.getMax())
+                    .append('}');
+            first = false;
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Reports everything recorded so far as human-readable text.
+     *
+     * @return  the report
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            text.append(String.format(Locale.ROOT, "%-10s %12.3f ms%n", phase.getLabel(),
+                    getPhaseNanos(phase) / 1e6));
+        }
+        text.append(String.format(Locale.ROOT, "%-10s %12d%n", "tokens", getTokenCount()));
+        text.append(String.format(Locale.ROOT, "%-10s %12d%n", "nodes", getNodeCount()));
+        text.append(String.format(Locale.ROOT, "%-10s %12d%n", "max depth", getMaxDepth()));
+        List<String> names = getFunctionNames();
+        if (!names.isEmpty()) {
+            text.append(String.format(Locale.ROOT, "%n%-16s %12s %12s %10s %10s %10s %10s %10s%n", "function",
+                    "calls", "total (ms)", "mean (us)", "p50 (us)", "p90 (us)", "p99 (us)", "max (us)"));
+            for (String name : names) {
+                LatencyHistogram histogram = histograms.get(name);
+                text.append(String.format(Locale.ROOT, "%-16s %12d %12.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                        name, histogram.getCount(), histogram.getTotal() / 1e6, histogram.getMean() / 1e3,
+                        histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(90) / 1e3,
+                        histogram.getValueAtPercentile(99) / 1e3, histogram.getMax() / 1e3));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,423 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Represents a Capriccio program flattened into postfix instructions for a stack machine.
+ *
+ * Instructions are stored as parallel arrays rather than as objects: an opcode and an operand per instruction, the
+ * number of arguments taken by each call and a side table of source positions for error reporting. Function
+ * identifiers are stored once each in a separate table and referred to by index.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class Program {
+
+    /**
+     * Opcode for an instruction that pushes its operand (an integer value) onto the stack.
+     */
+    public static final int PUSH = 0;
+
+    /**
+     * Opcode for an instruction that pops its arguments off the stack, calls the function whose identifier index is
+     * given by its operand and pushes the result.
+     */
+    public static final int CALL = 1;
+
+    /**
+     * The initial capacity of instruction arrays while parsing.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The token types that can begin an expression.
+     */
+    private static final TokenType[] EXPRESSION_START = new TokenType[] {TokenType.OPEN_PARENTHESIS,
+            TokenType.INTEGER};
+
+    /**
+     * Represents a call to a function with particular argument values, used to find identical calls.
+     */
+    private static class CallKey {
+
+        private int identifierIndex;
+
+        private int[] args;
+
+        private int hash;
+
+        /**
+         * Initialises a new instance of a call key.
+         *
+         * @param identifierIndex   the identifier index of the function called
+         * @param args              the argument values
+         */
+        private CallKey(int identifierIndex, int[] args) {
+            this.identifierIndex = identifierIndex;
+            this.args = args;
+            hash = identifierIndex * 31 + Arrays.hashCode(args);
+        }
+
+        /**
+         * @inheritDoc
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CallKey)) {
+                return false;
+            }
+            CallKey other = (CallKey) obj;
+            return identifierIndex == other.identifierIndex && Arrays.equals(args, other.args);
+        }
+
+        /**
+         * @inheritDoc
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private int size;
+
+    private int[] opcodes;
+
+    private int[] operands;
+
+    private int[] arities;
+
+    private int[] lines;
+
+    private int[] columns;
+
+    private String[] identifiers;
+
+    private int maxStackDepth;
+
+    /**
+     * Initialises a new, empty program with room for the given number of instructions.
+     *
+     * @param capacity  the initial instruction capacity
+     */
+    private Program(int capacity) {
+        size = 0;
+        opcodes = new int[capacity];
+        operands = new int[capacity];
+        arities = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        identifiers = new String[] {};
+        maxStackDepth = 0;
+    }
+
+    /**
+     * Gets the number of instructions in the program.
+     *
+     * @return  the number of instructions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the opcode of an instruction.
+     *
+     * @param index the index of the instruction
+     * @return      the opcode, one of {@link #PUSH} or {@link #CALL}
+     */
+    public int getOpcode(int index) {
+        return opcodes[index];
+    }
+
+    /**
+     * Gets the operand of an instruction. This is the value pushed for a {@link #PUSH} instruction or the identifier
+     * index of the function called for a {@link #CALL} instruction.
+     *
+     * @param index the index of the instruction
+     * @return      the operand
+     */
+    public int getOperand(int index) {
+        return operands[index];
+    }
+
+    /**
+     * Gets the number of arguments taken by an instruction (zero for {@link #PUSH} instructions).
+     *
+     * @param index the index of the instruction
+     * @return      the number of arguments
+     */
+    public int getArity(int index) {
+        return arities[index];
+    }
+
+    /**
+     * Gets the line in the source at which an instruction originates.
+     *
+     * @param index the index of the instruction
+     * @return      the line number
+     */
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Gets the column in the source at which an instruction originates.
+     *
+     * @param index the index of the instruction
+     * @return      the column number
+     */
+    public int getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Gets the table of function identifiers referred to by {@link #CALL} instructions.
+     *
+     * @return  the identifier table
+     */
+    public String[] getIdentifiers() {
+        return identifiers;
+    }
+
+    /**
+     * Gets the greatest number of values the program ever holds on the stack at once.
+     *
+     * @return  the maximum stack depth
+     */
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * Gets the depth to which calls are nested in this program, which is also the deepest evaluation ever gets. A
+     * program consisting of a single atom has depth zero.
+     *
+     * @return  the nesting depth
+     */
+    public int getNestingDepth() {
+        int[] depths = new int[Math.max(maxStackDepth, 1)];
+        int stackSize = 0;
+        int nestingDepth = 0;
+        for (int i = 0; i < size; i++) {
+            int depth = 0;
+            if (opcodes[i] == CALL) {
+                for (int j = 0; j < arities[i]; j++) {
+                    depth = Math.max(depth, depths[--stackSize]);
+                }
+                depth++;
+            }
+            depths[stackSize++] = depth;
+            nestingDepth = Math.max(nestingDepth, depth);
+        }
+        return nestingDepth;
+    }
+
+    /**
+     * Appends an instruction to the program, growing its arrays if needed.
+     *
+     * @param opcode    the opcode
+     * @param operand   the operand
+     * @param arity     the number of arguments taken
+     * @param line      the line in the source at which the instruction originates
+     * @param column    the column in the source at which the instruction originates
+     */
+    private void emit(int opcode, int operand, int arity, int line, int column) {
+        if (size == opcodes.length) {
+            int capacity = size * 2;
+            opcodes = Arrays.copyOf(opcodes, capacity);
+            operands = Arrays.copyOf(operands, capacity);
+            arities = Arrays.copyOf(arities, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        opcodes[size] = opcode;
+        operands[size] = operand;
+        arities[size] = arity;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    /**
+     * Reads the tokens comprising an expression from the given token stream and returns the parsed result as a flat
+     * program. Parsing is iterative, so the depth to which calls may be nested is bounded only by available memory.
+     *
+     * Tokens are consumed, and parse errors raised, exactly as by {@link Expression#parse(TokenStream)}.
+     *
+     * @param tokenStream       the token stream to read from
+     * @return                  the parsed result
+     * @throws ParseException   if parsing fails
+     */
+    public static Program parse(TokenStream tokenStream) throws ParseException {
+
+        // Build the program here, interning identifiers as we go.
+        Program program = new Program(INITIAL_CAPACITY);
+        Map<String, Integer> identifierIndices = new HashMap<String, Integer>();
+
+        // Keep our own stack of open calls instead of recursing.
+        Token[] openCalls = new Token[INITIAL_CAPACITY];
+        int[] argumentCounts = new int[INITIAL_CAPACITY];
+        int depth = 0;
+        int stackDepth = 0;
+
+        while (true) {
+
+            // Peek expecting one of two possibilities.
+            Token token = tokenStream.peekExpectingOneOf(EXPRESSION_START);
+            if (token.getType() == TokenType.INTEGER) {
+
+                // An atomic value is pushed onto the stack.
+                tokenStream.read();
+                program.emit(PUSH, Integer.parseInt(token.getText()), 0, token.getLine(), token.getColumn());
+                program.maxStackDepth = Math.max(program.maxStackDepth, ++stackDepth);
+                if (depth == 0) {
+                    break; // The whole program is a single atom.
+                }
+                argumentCounts[depth - 1]++;
+            } else {
+
+                // An open parenthesis indicates a call, read function identifier and remember the call is open.
+                tokenStream.readExpecting(TokenType.OPEN_PARENTHESIS);
+                Token identifier = tokenStream.readExpecting(TokenType.IDENTIFIER);
+                if (depth == openCalls.length) {
+                    openCalls = Arrays.copyOf(openCalls, depth * 2);
+                    argumentCounts = Arrays.copyOf(argumentCounts, depth * 2);
+                }
+                openCalls[depth] = identifier;
+                argumentCounts[depth] = 0;
+                depth++;
+            }
+
+            // Close every call that has no more arguments to read.
+            while (tokenStream.peek().getType() == TokenType.CLOSE_PARENTHESIS) {
+                tokenStream.read();
+                depth--;
+                Token identifier = openCalls[depth];
+                openCalls[depth] = null;
+                Integer identifierIndex = identifierIndices.get(identifier.getText());
+                if (identifierIndex == null) {
+                    identifierIndex = identifierIndices.size();
+                    identifierIndices.put(identifier.getText(), identifierIndex);
+                }
+                int arity = argumentCounts[depth];
+                program.emit(CALL, identifierIndex, arity, identifier.getLine(), identifier.getColumn());
+                stackDepth -= arity - 1;
+                program.maxStackDepth = Math.max(program.maxStackDepth, stackDepth);
+                if (depth == 0) {
+                    break;
+                }
+                argumentCounts[depth - 1]++;
+            }
+            if (depth == 0) {
+                break; // Outermost call closed.
+            }
+        }
+
+        // Build identifier table from interned identifiers.
+        program.identifiers = new String[identifierIndices.size()];
+        for (Map.Entry<String, Integer> entry : identifierIndices.entrySet()) {
+            program.identifiers[entry.getValue()] = entry.getKey();
+        }
+        return program;
+    }
+
+    /**
+     * Returns an optimized copy of this program in which every call to a pure function whose arguments are all
+     * constant is replaced by its result, folding whole subtrees with only literal leaves down to a single value.
+     * Identical calls are computed only once, no matter how many times they occur in the program.
+     *
+     * Calls to functions that are unknown, impure or called with the wrong arity are left in place, as are calls that
+     * throw when folded, so errors are still raised in source order at the same position during evaluation.
+     *
+     * @param functions the functions corresponding to each entry in the identifier table, null where unknown
+     * @return          the optimized program
+     */
+    Program optimize(IntNamedFunction[] functions) {
+
+        // Copy instructions across, tracking which values on the stack are constant.
+        Program optimized = new Program(Math.max(size, 1));
+        optimized.identifiers = identifiers;
+        Map<CallKey, Integer> folded = new HashMap<CallKey, Integer>();
+        boolean[] constant = new boolean[Math.max(maxStackDepth, 1)];
+        int stackSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (opcodes[i] == CALL) {
+
+                // Only calls to pure functions with all-constant arguments can be folded.
+                int arity = arities[i];
+                stackSize -= arity;
+                boolean foldable = true;
+                for (int j = stackSize; j < stackSize + arity; j++) {
+                    foldable &= constant[j];
+                }
+                IntNamedFunction function = functions[operands[i]];
+                Integer value = null;
+                if (foldable && function != null && function.isPure() && function.getArity() == arity) {
+
+                    // Constant arguments are the last instructions emitted.
+                    int[] args = Arrays.copyOfRange(optimized.operands, optimized.size - arity, optimized.size);
+                    CallKey key = new CallKey(operands[i], args);
+                    value = folded.get(key);
+                    if (value == null) {
+                        try {
+                            value = function.applyAsInt(args);
+                            folded.put(key, value);
+                        } catch (RuntimeException | StackOverflowError e) {
+                            // Leave failing calls for evaluation to raise, after any errors earlier in the program.
+                        }
+                    }
+                }
+                if (value != null) {
+
+                    // Replace the constant arguments with the result.
+                    optimized.size -= arity;
+                    optimized.emit(PUSH, value, 0, lines[i], columns[i]);
+                    constant[stackSize++] = true;
+                    continue;
+                }
+                constant[stackSize++] = false;
+            } else {
+                constant[stackSize++] = true;
+            }
+            optimized.emit(opcodes[i], operands[i], arities[i], lines[i], columns[i]);
+        }
+
+        // Work out how deep the stack gets now.
+        int stackDepth = 0;
+        for (int i = 0; i < optimized.size; i++) {
+            stackDepth += 1 - optimized.arities[i];
+            optimized.maxStackDepth = Math.max(optimized.maxStackDepth, stackDepth);
+        }
+        return optimized;
+    }
+
+    /**
+     * Builds an {@link Expression} tree view of this program, for tools that work with the tree representation.
+     *
+     * @return  the expression tree
+     */
+    public Expression toExpression() {
+        Expression[] stack = new Expression[Math.max(maxStackDepth, 1)];
+        int stackSize = 0;
+        for (int i = 0; i < size; i++) {
+            Token token;
+            switch (opcodes[i]) {
+                case PUSH:
+                    token = new Token(Integer.toString(operands[i]), TokenType.INTEGER, lines[i], columns[i]);
+                    stack[stackSize++] = new Atom(token, operands[i]);
+                    break;
+                case CALL:
+                    token = new Token(identifiers[operands[i]], TokenType.IDENTIFIER, lines[i], columns[i]);
+                    stackSize -= arities[i];
+                    Expression[] expressions = Arrays.copyOfRange(stack, stackSize, stackSize + arities[i]);
+                    Arrays.fill(stack, stackSize, stackSize + arities[i], null);
+                    stack[stackSize++] = new Call(token, expressions);
+                    break;
+            }
+        }
+        return stackSize == 0 ? null : stack[0];
+    }
+}
@@ -0,0 +1,416 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents a bounded, thread-safe cache of function results keyed on function and argument values.
+ *
+ * The cache is split into independently locked segments, each holding at most its share of the total capacity and
+ * evicting its least recently used entry when full. Arguments and results are stored as primitive ints. Functions are
+ * cached if they declare themselves pure unless caching is explicitly enabled or disabled for them by name.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class ResultCache {
+
+    /**
+     * The maximum number of independently locked segments to split the cache into.
+     */
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * The shift that brings the top bits of a hash down to select a segment, leaving the low bits to select a bucket.
+     */
+    private static final int SEGMENT_SHIFT = 28;
+
+    /**
+     * Represents a cached function result, linked both into its hash bucket and into its segment's recency list.
+     */
+    private static class Entry {
+
+        private IntNamedFunction function;
+
+        private int[] args;
+
+        private int hash;
+
+        private int value;
+
+        private Entry next;
+
+        private Entry before;
+
+        private Entry after;
+    }
+
+    /**
+     * Represents an independently locked segment of the cache.
+     */
+    private static class Segment {
+
+        private Entry[] table;
+
+        private Entry head;
+
+        private int size;
+
+        private int capacity;
+
+        /**
+         * Initialises a new, empty cache segment.
+         *
+         * @param capacity  the maximum number of entries to hold
+         */
+        private Segment(int capacity) {
+            int buckets = Integer.highestOneBit(Math.max(capacity * 4 / 3, 1)) * 2;
+            table = new Entry[buckets];
+            head = new Entry(); // Sentinel, most recently used entry follows it.
+            head.before = head;
+            head.after = head;
+            size = 0;
+            this.capacity = capacity;
+        }
+
+        /**
+         * Unlinks an entry from the recency list.
+         *
+         * @param entry the entry
+         */
+        private void unlink(Entry entry) {
+            entry.before.after = entry.after;
+            entry.after.before = entry.before;
+        }
+
+        /**
+         * Links an entry into the recency list as the most recently used entry.
+         *
+         * @param entry the entry
+         */
+        private void linkFirst(Entry entry) {
+            entry.after = head.after;
+            entry.before = head;
+            head.after.before = entry;
+            head.after = entry;
+        }
+
+        /**
+         * Removes an entry from its hash bucket.
+         *
+         * @param entry the entry
+         */
+        private void removeFromBucket(Entry entry) {
+            int bucket = entry.hash & (table.length - 1);
+            if (table[bucket] == entry) {
+                table[bucket] = entry.next;
+                return;
+            }
+            for (Entry current = table[bucket]; current != null; current = current.next) {
+                if (current.next == entry) {
+                    current.next = entry.next;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Finds the entry for a function and arguments, marking it as most recently used.
+         *
+         * @param function  the function
+         * @param args      the arguments
+         * @param hash      the hash of the function and arguments
+         * @return          the entry, or null if there is none
+         */
+        private synchronized Entry get(IntNamedFunction function, int[] args, int hash) {
+            for (Entry entry = table[hash & (table.length - 1)]; entry != null; entry = entry.next) {
+                if (entry.hash == hash && entry.function == function && Arrays.equals(entry.args, args)) {
+                    unlink(entry);
+                    linkFirst(entry);
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Stores the result for a function and arguments, evicting the least recently used entry if full.
+         *
+         * @param function  the function
+         * @param args      the arguments, which must not be modified afterwards
+         * @param hash      the hash of the function and arguments
+         * @param value     the result
+         * @return          true if an entry was evicted to make room, otherwise false
+         */
+        private synchronized boolean put(IntNamedFunction function, int[] args, int hash, int value) {
+
+            // Another thread may have beaten us to it.
+            if (get(function, args, hash) != null) {
+                return false;
+            }
+
+            // Evict least recently used entry if full.
+            boolean evicted = false;
+            if (size == capacity) {
+                Entry eldest = head.before;
+                unlink(eldest);
+                removeFromBucket(eldest);
+                size--;
+                evicted = true;
+            }
+
+            // Insert new entry.
+            Entry entry = new Entry();
+            entry.function = function;
+            entry.args = args;
+            entry.hash = hash;
+            entry.value = value;
+            int bucket = hash & (table.length - 1);
+            entry.next = table[bucket];
+            table[bucket] = entry;
+            linkFirst(entry);
+            size++;
+            return evicted;
+        }
+
+        /**
+         * Gets the number of entries in this segment.
+         *
+         * @return  the number of entries
+         */
+        private synchronized int size() {
+            return size;
+        }
+
+        /**
+         * Removes all entries from this segment.
+         */
+        private synchronized void clear() {
+            Arrays.fill(table, null);
+            head.before = head;
+            head.after = head;
+            size = 0;
+        }
+    }
+
+    /**
+     * Represents a function whose results are served from this cache where possible.
+     */
+    private class MemoizedFunction implements IntNamedFunction {
+
+        private IntNamedFunction function;
+
+        /**
+         * Initialises a new instance of a memoized function.
+         *
+         * @param function  the function to memoize
+         */
+        private MemoizedFunction(IntNamedFunction function) {
+            this.function = function;
+        }
+
+        /**
+         * Gets the cache this function is memoized by.
+         *
+         * @return  the cache
+         */
+        private ResultCache getCache() {
+            return ResultCache.this;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int applyAsInt(int[] args) {
+
+            // Caching might be disabled for this function.
+            if (!isEnabled(function)) {
+                return function.applyAsInt(args);
+            }
+
+            // Try the cache first.
+            int hash = hash(function, args);
+            Segment segment = segments[(hash >>> SEGMENT_SHIFT) & segmentMask];
+            Entry entry = segment.get(function, args, hash);
+            if (entry != null) {
+                hits.increment();
+                return entry.value;
+            }
+
+            // Compute and cache result, copying arguments as the caller may reuse the array.
+            misses.increment();
+            int value = function.applyAsInt(args);
+            if (segment.put(function, args.clone(), hash, value)) {
+                evictions.increment();
+            }
+            return value;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public String getName() {
+            return function.getName();
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int getArity() {
+            return function.getArity();
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public boolean isPure() {
+            return function.isPure();
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public int getCost() {
+            return function.getCost();
+        }
+    }
+
+    private final Segment[] segments;
+
+    private final int segmentMask;
+
+    private final LongAdder hits;
+
+    private final LongAdder misses;
+
+    private final LongAdder evictions;
+
+    private final Map<String, Boolean> enabled;
+
+    private final Map<NamedFunction<int[], Integer>, IntNamedFunction> memoized;
+
+    /**
+     * Initialises a new instance of a result cache.
+     *
+     * @param capacity  the maximum number of results to hold
+     */
+    public ResultCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Result cache capacity must be at least 1.");
+        }
+
+        // Use as many segments as we can without any going empty, sharing capacity out so it adds up exactly.
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= capacity) {
+            segmentCount *= 2;
+        }
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0));
+        }
+        segmentMask = segmentCount - 1;
+
+        hits = new LongAdder();
+        misses = new LongAdder();
+        evictions = new LongAdder();
+        enabled = new ConcurrentHashMap<String, Boolean>();
+        memoized = new ConcurrentHashMap<NamedFunction<int[], Integer>, IntNamedFunction>();
+    }
+
+    /**
+     * Hashes a function and its arguments, spreading the result so both high and low bits are usable.
+     *
+     * @param function  the function
+     * @param args      the arguments
+     * @return          the hash
+     */
+    private static int hash(IntNamedFunction function, int[] args) {
+        int hash = System.identityHashCode(function) * 31 + Arrays.hashCode(args);
+        return hash * 0x9E3779B9;
+    }
+
+    /**
+     * Returns a function that serves results of the given function from this cache where possible. Memoizing the same
+     * function twice returns the same wrapper.
+     *
+     * @param function  the function to memoize
+     * @return          the memoized function
+     */
+    public IntNamedFunction memoize(NamedFunction<int[], Integer> function) {
+        if (function instanceof MemoizedFunction && ((MemoizedFunction) function).getCache() == this) {
+            return (MemoizedFunction) function; // Already memoized by this cache.
+        }
+        return memoized.computeIfAbsent(function, key -> new MemoizedFunction(IntNamedFunction.of(key)));
+    }
+
+    /**
+     * Explicitly enables or disables caching for functions with a given name, overriding whether or not they are pure.
+     *
+     * @param name      the function name
+     * @param enabled   true to enable caching, false to disable it
+     */
+    public void setEnabled(String name, boolean enabled) {
+        this.enabled.put(name, enabled);
+    }
+
+    /**
+     * Gets whether or not results of a function are cached.
+     *
+     * @param function  the function
+     * @return          true if caching is enabled for the function, otherwise false
+     */
+    public boolean isEnabled(NamedFunction<int[], Integer> function) {
+        Boolean override = enabled.get(function.getName());
+        return override == null ? function.isPure() : override;
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return  the hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups not served from the cache.
+     *
+     * @return  the miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of entries evicted to make room for others.
+     *
+     * @return  the eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the number of results currently held.
+     *
+     * @return  the number of results
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes all results from the cache. Counters are left as they are.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+}
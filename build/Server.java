@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Represents a long-running service that accepts programs over a local socket and writes back their results.
+ *
+ * Each connection is handled as a batch session by a shared {@link BatchRunner}: the client writes delimited programs
+ * and reads back one line of output per program, until it closes its side of the connection. The service listens
+ * either on a loopback TCP port or, where the runtime supports it, on a Unix-domain socket.
+ *
+ * @since 17/10/26
+ * @author Saul Johnson <saul.a.johnson@gmail.com>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"}) // API class.
+public class Server {
+
+    private BatchRunner runner;
+
+    private ExecutorService connections;
+
+    /**
+     * Initialises a new instance of a program evaluation service.
+     *
+     * @param runner    the batch runner to handle each connection with
+     */
+    public Server(BatchRunner runner) {
+        this.runner = runner;
+        connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a server socket channel bound to a local address. A purely numeric address is taken to be a loopback TCP
+     * port, anything else to be the path of a Unix-domain socket.
+     *
+     * @param address       the port number or socket path
+     * @return              the bound server socket channel
+     * @throws IOException  if the socket could not be bound, or Unix-domain sockets are not supported
+     */
+    private static ServerSocketChannel bind(String address) throws IOException {
+
+        // Loopback TCP port.
+        if (address.matches("[0-9]+")) {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+            return channel;
+        }
+
+        // Unix-domain socket, looked up reflectively as older runtimes lack support.
+        SocketAddress socketAddress;
+        ServerSocketChannel channel;
+        try {
+            socketAddress = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", String.class).invoke(null, address);
+            channel = (ServerSocketChannel) ServerSocketChannel.class
+                    .getMethod("open", java.net.ProtocolFamily.class)
+                    .invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new IOException("Unix-domain sockets are not supported by this runtime.", e);
+        }
+        channel.bind(socketAddress);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(Paths.get(address)); // Clean up socket file.
+            } catch (IOException e) {
+                // Nothing more we can do.
+            }
+        }));
+        return channel;
+    }
+
+    /**
+     * Handles a single client connection until the client stops sending programs.
+     *
+     * @param client    the client connection
+     */
+    private void handle(SocketChannel client) {
+        try (SocketChannel channel = client) {
+            Reader input = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1);
+            Writer output = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1);
+            runner.run(input, output);
+        } catch (IOException e) {
+            System.err.println("Error: Connection failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Listens on a local address, handling connections until the process is stopped.
+     *
+     * @param address       the loopback TCP port number or Unix-domain socket path to listen on
+     * @throws IOException  if the socket could not be bound or accepting connections fails
+     */
+    public void serve(String address) throws IOException {
+        try (ServerSocketChannel server = bind(address)) {
+            System.err.println("Listening on " + server.getLocalAddress() + ".");
+            while (true) {
+                SocketChannel client = server.accept();
+                connections.execute(() -> handle(client));
+            }
+        }
+    }
+}
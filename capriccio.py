@@ -106,6 +106,34 @@ def map_args (arity):
     return out
 
 
+def map_params (arity, typed):
+    """ Generates a list of separate parameters for a function with the given arity.
+    Args:
+        arity (int): The arity.
+        typed (bool): Whether or not to declare each parameter with its type.
+    Returns:
+        str: The parameter list.
+    """
+    prefix = 'int ' if typed else ''
+    return ', '.join(f'{prefix}arg{i}' for i in range(arity))
+
+
+def gen_specialized_apply (name, arity):
+    """ Generates the entry point taking separate arguments for a function with the given name and arity.
+    Args:
+        name (str): The function name.
+        arity (int): The arity.
+    Returns:
+        str: The entry point, or an empty string if there is none for this arity.
+    """
+    if arity > MAX_SPECIALIZED_ARITY:
+        return '' # Arguments will be passed in an array.
+    return (f'\n    /**\n     * @inheritDoc\n     */\n'
+        f'    public int apply{arity}({map_params(arity, True)}) {{\n'
+        f'        return {name}({map_params(arity, False)});\n'
+        f'    }}\n')
+
+
 def gen_reg (class_names):
     """ Generates registration calls for funtions with the given class names.
     Args:
@@ -116,7 +144,7 @@ def gen_reg (class_names):
     out = ""
     for class_name in class_names:
         if len(out) > 0:
-            out += '\n            '
+            out += '\n        '
         out += f'evaluator.addFunction(new {class_name}());'
     return out
 
@@ -125,6 +153,7 @@ def gen_reg (class_names):
 SRC_DIR = './src'
 BUILD_DIR = './build'
 MAIN_FILE = f'{BUILD_DIR}/Main.java'
+MAX_SPECIALIZED_ARITY = 4 # Must match `IntNamedFunction.MAX_SPECIALIZED_ARITY`.
 
 # First, check that Humoresque is available.
 if not os.path.isfile('humoresque.jar'):
@@ -154,7 +183,8 @@ for src_file in src_files:
             ('name', func_name),
             ('body', func_body),
             ('arity', str(func_arity)),
-            ('args', func_args)])
+            ('args', func_args),
+            ('specialized_apply', gen_specialized_apply(func_name, func_arity))])
 
 # Generate main file and ensure functions are registered in it.
 copyfile(f'{BUILD_DIR}/Main.java.template', MAIN_FILE)